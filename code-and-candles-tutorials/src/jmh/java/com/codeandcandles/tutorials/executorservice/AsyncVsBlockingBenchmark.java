@@ -0,0 +1,128 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput with a fixed thread budget: blocking {@code Future.get()} composition
+ * (the {@link CallableFutureExample} style) against {@link AsyncTask}.
+ *
+ * <p>
+ * Every request fans out to {@code calls} downstream calls of {@code latencyMillis} each and sums
+ * the results. An invocation pushes {@code requests} concurrent requests through and waits for all
+ * of them, so lower is better.
+ * </p>
+ * <ul>
+ *     <li><strong>blocking</strong> – half of the {@code threads} handle requests and block in
+ *         {@code get()}; the other half run the calls, which block in {@code sleep()}. This is
+ *         the usual split to avoid the {@link DeadlockExample} trap.</li>
+ *     <li><strong>async</strong> – all {@code threads} run {@code AsyncTask} stages. The downstream call is
+ *         a future completed after the latency, the way a non-blocking client behaves, so no
+ *         thread waits.</li>
+ * </ul>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=AsyncVsBlockingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncVsBlockingBenchmark {
+
+    @Param({"4", "16"})
+    int threads;
+
+    @Param({"64", "512"})
+    int requests;
+
+    @Param({"3"})
+    int calls;
+
+    @Param({"5"})
+    long latencyMillis;
+
+    private ExecutorService requestPool;
+    private ExecutorService callPool;
+    private ExecutorService asyncPool;
+    private Executor delayedCompletion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        requestPool = Executors.newFixedThreadPool(Math.max(1, threads / 2));
+        callPool = Executors.newFixedThreadPool(Math.max(1, threads / 2));
+        asyncPool = Executors.newFixedThreadPool(threads);
+        delayedCompletion = CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS, asyncPool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (ExecutorService pool : new ExecutorService[]{requestPool, callPool, asyncPool}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void blocking() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int r = 0; r < requests; r++) {
+            requestPool.execute(() -> {
+                try {
+                    List<Future<Integer>> results = new ArrayList<>(calls);
+                    for (int c = 0; c < calls; c++) {
+                        int call = c;
+                        results.add(callPool.submit(() -> blockingCall(call)));
+                    }
+                    int sum = 0;
+                    for (Future<Integer> result : results) {
+                        sum += result.get(); // parks this request thread
+                    }
+                    if (sum < 0) {
+                        throw new IllegalStateException();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void async() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int r = 0; r < requests; r++) {
+            List<AsyncTask<Integer>> results = new ArrayList<>(calls);
+            for (int c = 0; c < calls; c++) {
+                int call = c;
+                results.add(AsyncTask.from(
+                        CompletableFuture.supplyAsync(() -> call, delayedCompletion), asyncPool));
+            }
+            AsyncTask.allOf(results)
+                    .then(values -> values.stream().mapToInt(Integer::intValue).sum())
+                    .whenDone((sum, error) -> done.countDown());
+        }
+        done.await();
+    }
+
+    private int blockingCall(int call) throws InterruptedException {
+        Thread.sleep(latencyMillis);
+        return call;
+    }
+}
@@ -0,0 +1,105 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of many tiny tasks: one {@code submit()} per item, as in
+ * {@link BasicFixedThreadPoolExample}, against the same items coalesced by a {@link BatchingExecutor}.
+ *
+ * <p>
+ * Each invocation pushes {@code items} items through and waits for every per-item future, so both
+ * variants keep the same result semantics. The score is invocations per second; multiply by
+ * {@code items} for items per second. {@code batchSize = 1} shows the cost of the batching layer
+ * itself.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=BatchingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchingBenchmark {
+
+    @Param({"4"})
+    int poolSize;
+
+    @Param({"10000"})
+    int items;
+
+    @Param({"1", "16", "256"})
+    int batchSize;
+
+    @Param({"10"})
+    long itemTokens;
+
+    private ExecutorService pool;
+    private BatchingExecutor<Integer, Integer> batcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(poolSize);
+        batcher = new BatchingExecutor<>(pool, batchSize, Duration.ofMillis(1), batch -> {
+            List<Integer> out = new ArrayList<>(batch.size());
+            for (Integer item : batch) {
+                Blackhole.consumeCPU(itemTokens);
+                out.add(item);
+            }
+            return out;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        batcher.close();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public long perTask() throws ExecutionException, InterruptedException {
+        List<Future<Integer>> futures = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            int item = i;
+            futures.add(pool.submit(() -> {
+                Blackhole.consumeCPU(itemTokens);
+                return item;
+            }));
+        }
+        long sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long batched() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            futures.add(batcher.submit(i));
+        }
+        batcher.flush(); // do not wait for the linger timer on the tail
+        long sum = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            sum += future.join();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,50 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Shared task shapes for the executorservice benchmarks.
+ *
+ * <p>
+ * The examples print and sleep, which is fine for a tutorial but useless for a
+ * measurement. These helpers keep the same submission patterns while replacing
+ * the body with a fixed amount of CPU work ({@link Blackhole#consumeCPU(long)}),
+ * so the numbers reflect the executor and not the console.
+ * </p>
+ */
+final class BenchmarkTasks {
+
+    private BenchmarkTasks() {
+    }
+
+    /**
+     * Submits {@code tasks} runnables to the executor and waits until all of them
+     * have finished. Tasks executed on the caller (e.g. by {@code CallerRunsPolicy})
+     * are counted the same way as tasks executed by a worker.
+     */
+    static void runBatch(Executor executor, int tasks, long tokens) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                Blackhole.consumeCPU(tokens);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * Stand-in for a blocking remote call: parks the calling thread for the given
+     * number of microseconds.
+     */
+    static void simulatedIo(long micros) {
+        try {
+            Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fine-grained CPU tasks on the {@code newFixedThreadPool(cores)} from {@link CpuVsIoPoolsExample},
+ * on a plain {@link ForkJoinPool}, and on {@link PartitionedWorkStealingExecutor} with and without
+ * partition keys.
+ *
+ * <p>
+ * Every task belongs to one of {@code keys} partitions and updates that partition's
+ * {@code stateLongs}-sized array, standing in for per-tenant or per-shard data. With keys, all tasks
+ * of a partition prefer the same worker, so that array tends to stay in one core's cache.
+ * {@code taskTokens} sets the extra CPU work per task. Small values make queue overhead dominate.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=CpuPoolBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CpuPoolBenchmark {
+
+    @Param({"10000"})
+    int tasksPerBatch;
+
+    @Param({"10", "100", "1000"})
+    long taskTokens;
+
+    @Param({"16", "256"})
+    int keys;
+
+    @Param({"512"})
+    int stateLongs;
+
+    private ExecutorService fixedPool;
+    private ForkJoinPool forkJoinPool;
+    private PartitionedWorkStealingExecutor workStealing;
+    private long[][] partitionState;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        fixedPool = Executors.newFixedThreadPool(cores);
+        forkJoinPool = new ForkJoinPool(cores);
+        workStealing = new PartitionedWorkStealingExecutor(cores);
+        partitionState = new long[keys][stateLongs];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (ExecutorService pool : new ExecutorService[]{fixedPool, forkJoinPool, workStealing}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void fixedThreadPool() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasksPerBatch);
+        for (int i = 0; i < tasksPerBatch; i++) {
+            fixedPool.execute(task(i % keys, done));
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void forkJoinPool() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasksPerBatch);
+        for (int i = 0; i < tasksPerBatch; i++) {
+            forkJoinPool.execute(task(i % keys, done));
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void workStealingUnkeyed() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasksPerBatch);
+        for (int i = 0; i < tasksPerBatch; i++) {
+            workStealing.execute(task(i % keys, done));
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void workStealingKeyed() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasksPerBatch);
+        for (int i = 0; i < tasksPerBatch; i++) {
+            int key = i % keys;
+            workStealing.execute(key, task(key, done));
+        }
+        done.await();
+    }
+
+    private Runnable task(int key, CountDownLatch done) {
+        return () -> {
+            long[] state = partitionState[key];
+            for (int j = 0; j < state.length; j++) {
+                state[j] += j; // racy on purpose: this is cache traffic, not a counter
+            }
+            Blackhole.consumeCPU(taskTokens);
+            done.countDown();
+        };
+    }
+}
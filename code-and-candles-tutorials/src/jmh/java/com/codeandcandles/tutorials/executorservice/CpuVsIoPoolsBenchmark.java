@@ -0,0 +1,92 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the split used in {@link CpuVsIoPoolsExample}: a mixed batch of CPU
+ * and simulated I/O tasks, run either on one shared fixed pool or on a
+ * dedicated CPU pool plus a cached I/O pool.
+ *
+ * <p>
+ * With the shared pool, blocked I/O tasks occupy threads that CPU work needs.
+ * The separated pools should keep throughput up as {@code ioTasks} grows.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=CpuVsIoPoolsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CpuVsIoPoolsBenchmark {
+
+    @Param({"100"})
+    int cpuTasks;
+
+    @Param({"0", "16", "128"})
+    int ioTasks;
+
+    @Param({"10000"})
+    long cpuTokens;
+
+    @Param({"1000"})
+    long ioMicros;
+
+    private ExecutorService sharedPool;
+    private ExecutorService cpuPool;
+    private ExecutorService ioPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        sharedPool = Executors.newFixedThreadPool(cores);
+        cpuPool = Executors.newFixedThreadPool(cores);
+        ioPool = Executors.newCachedThreadPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (ExecutorService pool : new ExecutorService[]{sharedPool, cpuPool, ioPool}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void sharedPool() throws InterruptedException {
+        runMixed(sharedPool, sharedPool);
+    }
+
+    @Benchmark
+    public void separatePools() throws InterruptedException {
+        runMixed(cpuPool, ioPool);
+    }
+
+    private void runMixed(ExecutorService cpu, ExecutorService io) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(cpuTasks + ioTasks);
+        for (int i = 0; i < ioTasks; i++) {
+            io.execute(() -> {
+                BenchmarkTasks.simulatedIo(ioMicros);
+                done.countDown();
+            });
+        }
+        for (int i = 0; i < cpuTasks; i++) {
+            cpu.execute(() -> {
+                Blackhole.consumeCPU(cpuTokens);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
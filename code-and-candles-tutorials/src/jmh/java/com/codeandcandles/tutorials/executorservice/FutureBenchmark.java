@@ -0,0 +1,90 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip latency of the {@link Future}-based patterns in
+ * {@link CallableFutureExample}, {@link ExceptionHandlingExample} and
+ * {@link DeadlockExample}.
+ *
+ * <p>
+ * The nested-submission benchmark reproduces the {@code DeadlockExample} shape
+ * (outer task blocks on an inner task submitted to the same pool). It only
+ * completes because {@code poolSize} starts at 2; with a single thread it would
+ * hang exactly like the example.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=FutureBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FutureBenchmark {
+
+    @Param({"2", "4", "8"})
+    int poolSize;
+
+    @Param({"100"})
+    long taskTokens;
+
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(poolSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Integer callableFuture() throws Exception {
+        Future<Integer> result = pool.submit(() -> {
+            Blackhole.consumeCPU(taskTokens);
+            return 42;
+        });
+        return result.get();
+    }
+
+    @Benchmark
+    public Throwable exceptionHandling() throws InterruptedException {
+        Future<?> future = pool.submit(() -> {
+            Blackhole.consumeCPU(taskTokens);
+            throw new RuntimeException("Something went wrong!");
+        });
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        }
+    }
+
+    @Benchmark
+    public Integer nestedSubmission() throws Exception {
+        Future<Integer> outer = pool.submit(() -> {
+            Future<Integer> inner = pool.submit(() -> {
+                Blackhole.consumeCPU(taskTokens);
+                return 10;
+            });
+            return inner.get();
+        });
+        return outer.get();
+    }
+}
@@ -0,0 +1,79 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link InstrumentedThreadPoolExecutor} over a plain {@link ThreadPoolExecutor} with the
+ * {@link CustomThreadPoolExample} shape (bounded queue, {@code CallerRunsPolicy}).
+ *
+ * <p>
+ * Tasks are tiny so the per-task bookkeeping is as visible as it can be. Run with
+ * {@code -prof gc} to check the allocation rate of the two variants.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=InstrumentationOverheadBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+    @Param({"4"})
+    int poolSize;
+
+    @Param({"64"})
+    int queueCapacity;
+
+    @Param({"1000"})
+    int tasksPerBatch;
+
+    @Param({"10", "1000"})
+    long taskTokens;
+
+    private ThreadPoolExecutor plainPool;
+    private InstrumentedThreadPoolExecutor instrumentedPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plainPool = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        instrumentedPool = new InstrumentedThreadPoolExecutor(
+                poolSize, poolSize,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (ThreadPoolExecutor pool : new ThreadPoolExecutor[]{plainPool, instrumentedPool}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void plain() throws InterruptedException {
+        BenchmarkTasks.runBatch(plainPool, tasksPerBatch, taskTokens);
+    }
+
+    @Benchmark
+    public void instrumented() throws InterruptedException {
+        BenchmarkTasks.runBatch(instrumentedPool, tasksPerBatch, taskTokens);
+    }
+}
@@ -0,0 +1,136 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs 10k–100k simulated {@code remoteApiCall()} tasks (see {@link CpuVsIoPoolsExample})
+ * through a cached platform-thread pool and through virtual threads.
+ *
+ * <p>
+ * The score is the wall-clock time for one batch; {@code tasks / score} is the throughput.
+ * Two {@link AuxCounters} are reported next to it as secondary results, so they end up in the
+ * JMH result file ({@code -rf json}) like the score:
+ * </p>
+ * <ul>
+ *     <li><strong>peakThreads</strong> – peak number of live platform (OS) threads during the
+ *         iteration, from {@link ThreadMXBean#getPeakThreadCount()}. Virtual threads are not
+ *         counted.</li>
+ *     <li><strong>peakRssMb</strong> – peak resident set size during the iteration
+ *         ({@code VmHWM} in {@code /proc/self/status}, reset before each iteration through
+ *         {@code /proc/self/clear_refs}). Linux only; {@code 0} elsewhere. If the reset is not
+ *         permitted, it is the peak since the fork started.</li>
+ * </ul>
+ *
+ * <p>
+ * JMH forks a fresh JVM per parameter combination, so the numbers of one mode do not leak into
+ * the other. Expect the cached pool to reach thousands of OS threads at 100k tasks, while the
+ * virtual mode stays close to the number of cores.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=IoExecutorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xss512k"})
+public class IoExecutorBenchmark {
+
+    @Param({"CACHED", "VIRTUAL"})
+    IoExecutorFactory mode;
+
+    @Param({"10000", "100000"})
+    int tasks;
+
+    @Param({"2147483647", "1000"})
+    int maxConcurrency;
+
+    @Param({"20"})
+    long callMillis;
+
+    private ExecutorService ioPool;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ioPool = mode.create(maxConcurrency);
+        threads.resetPeakThreadCount();
+        resetPeakRss();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        ioPool.shutdown();
+        ioPool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Resource peaks of one iteration, reported by JMH as secondary results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long peakThreads;
+        public long peakRssMb;
+    }
+
+    @Benchmark
+    public void remoteApiCalls(Footprint footprint) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            ioPool.execute(() -> {
+                remoteApiCall();
+                done.countDown();
+            });
+        }
+        done.await();
+        // one invocation per iteration, so reading the peaks here costs nothing measurable
+        footprint.peakThreads = threads.getPeakThreadCount();
+        footprint.peakRssMb = peakRssMb();
+    }
+
+    private void remoteApiCall() {
+        try {
+            Thread.sleep(callMillis); // simulate network or disk I/O
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long peakRssMb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // not on Linux
+        }
+        return 0;
+    }
+
+    /**
+     * Writing {@code 5} to {@code clear_refs} resets {@code VmHWM} to the current RSS.
+     */
+    private static void resetPeakRss() {
+        try {
+            Files.writeString(Path.of("/proc/self/clear_refs"), "5");
+        } catch (IOException ignored) {
+            // not on Linux, or not permitted: VmHWM stays the peak of the whole fork
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import com.codeandcandles.tutorials.executorservice.DeadlineThreadPoolExecutor.Priority;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency of a high-priority task under mixed load: the {@link CustomThreadPoolExample} pool
+ * (FIFO {@code ArrayBlockingQueue}, {@code CallerRunsPolicy}) against a
+ * {@link DeadlineThreadPoolExecutor} of the same shape.
+ *
+ * <p>
+ * A background thread keeps each pool's queue about half full of bulk tasks. The benchmark thread
+ * submits one small critical task and waits for it; {@code SampleTime} mode reports the
+ * percentiles, so compare {@code p0.99} and {@code p0.999} of the two methods. With FIFO the
+ * critical task waits behind the bulk backlog; with the deadline queue it waits for at most one
+ * running bulk task per worker.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=PrioritySchedulingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrioritySchedulingBenchmark {
+
+    @Param({"2"})
+    int corePoolSize;
+
+    @Param({"4"})
+    int maximumPoolSize;
+
+    @Param({"64"})
+    int queueCapacity;
+
+    @Param({"20000"})
+    long bulkTokens;
+
+    @Param({"100"})
+    long criticalTokens;
+
+    private ThreadPoolExecutor fifoPool;
+    private DeadlineThreadPoolExecutor deadlinePool;
+    private Thread bulkLoad;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fifoPool = new ThreadPoolExecutor(
+                corePoolSize, maximumPoolSize,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        deadlinePool = new DeadlineThreadPoolExecutor(
+                corePoolSize, maximumPoolSize,
+                30, TimeUnit.SECONDS,
+                queueCapacity,
+                Duration.ofSeconds(1),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        running = true;
+        bulkLoad = new Thread(() -> {
+            while (running) {
+                boolean idle = true;
+                if (fifoPool.getQueue().size() < queueCapacity / 2) {
+                    fifoPool.execute(() -> Blackhole.consumeCPU(bulkTokens));
+                    idle = false;
+                }
+                if (deadlinePool.getQueue().size() < queueCapacity / 2) {
+                    deadlinePool.execute(Priority.BULK, () -> Blackhole.consumeCPU(bulkTokens));
+                    idle = false;
+                }
+                if (idle) {
+                    LockSupport.parkNanos(10_000);
+                }
+            }
+        }, "bulk-load");
+        bulkLoad.setDaemon(true);
+        bulkLoad.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        bulkLoad.join();
+        for (ThreadPoolExecutor pool : new ThreadPoolExecutor[]{fifoPool, deadlinePool}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public Object fifoCritical() throws ExecutionException, InterruptedException {
+        return fifoPool.submit(() -> {
+            Blackhole.consumeCPU(criticalTokens);
+            return Boolean.TRUE;
+        }).get();
+    }
+
+    @Benchmark
+    public Object deadlineCritical() throws ExecutionException, InterruptedException {
+        return deadlinePool.submit(Priority.CRITICAL, () -> {
+            Blackhole.consumeCPU(criticalTokens);
+            return Boolean.TRUE;
+        }).get();
+    }
+}
@@ -0,0 +1,77 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link TokenBucket} permit as more threads compete for it.
+ *
+ * <p>
+ * The rate is high enough that permits are always free, so the score is the bookkeeping alone: a
+ * CAS on the bucket state. {@code shared*} methods hammer one bucket, as all tenants do on the
+ * shared rate of {@link RateLimitedExecutorService}; {@code perKey8Threads} gives each thread its
+ * own bucket, as tenants with their own keys do. Comparing the two at 8 threads shows what the
+ * contended CAS costs. Run with {@code -prof gc} to see the one state record allocated per permit.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=RateLimiterBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final double UNLIMITED = 1e12;
+
+    private TokenBucket sharedBucket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sharedBucket = new TokenBucket(UNLIMITED, Duration.ZERO);
+    }
+
+    /**
+     * One bucket per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class KeyedBucket {
+        TokenBucket bucket;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bucket = new TokenBucket(UNLIMITED, Duration.ZERO);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long shared1Thread() {
+        return sharedBucket.reserve();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long shared4Threads() {
+        return sharedBucket.reserve();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long shared8Threads() {
+        return sharedBucket.reserve();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long perKey8Threads(KeyedBucket keyed) {
+        return keyed.bucket.reserve();
+    }
+}
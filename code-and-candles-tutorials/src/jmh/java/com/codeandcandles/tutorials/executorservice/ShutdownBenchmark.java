@@ -0,0 +1,53 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the full pool lifecycle used in {@link ShutdownBestPracticeExample}:
+ * create, run a batch, {@code shutdown()}, {@code awaitTermination()}.
+ *
+ * <p>
+ * This is the price a short-lived pool pays on every use, and is the number to
+ * look at before creating executors per request instead of sharing one.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=ShutdownBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShutdownBenchmark {
+
+    @Param({"1", "2", "8"})
+    int poolSize;
+
+    @Param({"0", "100"})
+    int tasksPerBatch;
+
+    @Param({"100"})
+    long taskTokens;
+
+    @Benchmark
+    public boolean createRunAndShutdown() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+
+        BenchmarkTasks.runBatch(executor, tasksPerBatch, taskTokens);
+
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the pool configurations used in {@link BasicFixedThreadPoolExample},
+ * {@link CustomThreadPoolExample} and {@link BoundedQueueBackpressureExample}.
+ *
+ * <p>
+ * Each invocation submits a batch of small CPU tasks and waits for the batch to
+ * complete, so the score is batches per second. With a small {@code queueCapacity}
+ * the bounded pools push part of the batch back onto the benchmark thread through
+ * {@code CallerRunsPolicy}, which is exactly the behaviour the examples describe.
+ * The fixed pool has an unbounded queue and ignores {@code queueCapacity}.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=ThreadPoolBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadPoolBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int poolSize;
+
+    @Param({"1", "2", "64", "1024"})
+    int queueCapacity;
+
+    @Param({"1000"})
+    int tasksPerBatch;
+
+    @Param({"100"})
+    long taskTokens;
+
+    private ExecutorService fixedPool;
+    private ThreadPoolExecutor customPool;
+    private ThreadPoolExecutor backpressurePool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // BasicFixedThreadPoolExample: unbounded LinkedBlockingQueue
+        fixedPool = Executors.newFixedThreadPool(poolSize);
+
+        // CustomThreadPoolExample: core < max, bounded queue, CallerRunsPolicy
+        customPool = new ThreadPoolExecutor(
+                Math.max(1, poolSize / 2),
+                poolSize,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        // BoundedQueueBackpressureExample: core == max, bounded queue, CallerRunsPolicy
+        backpressurePool = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (ExecutorService pool : new ExecutorService[]{fixedPool, customPool, backpressurePool}) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void basicFixedThreadPool() throws InterruptedException {
+        BenchmarkTasks.runBatch(fixedPool, tasksPerBatch, taskTokens);
+    }
+
+    @Benchmark
+    public void customThreadPool() throws InterruptedException {
+        BenchmarkTasks.runBatch(customPool, tasksPerBatch, taskTokens);
+    }
+
+    @Benchmark
+    public void boundedQueueBackpressure() throws InterruptedException {
+        BenchmarkTasks.runBatch(backpressurePool, tasksPerBatch, taskTokens);
+    }
+}
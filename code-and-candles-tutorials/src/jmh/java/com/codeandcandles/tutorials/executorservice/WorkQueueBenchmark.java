@@ -0,0 +1,145 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MpmcBlockingQueue} with {@link ArrayBlockingQueue} and
+ * {@link LinkedBlockingQueue} under 1, 4, 16 and 64 producer threads feeding
+ * 4 consumer threads.
+ *
+ * <p>
+ * Producers call {@code offer} and consumers call {@code poll}: these are the
+ * calls {@code ThreadPoolExecutor.execute()} and an idle worker make on the hot
+ * path. Both are non-blocking, so a full or empty queue shows up as a failed
+ * attempt rather than a stalled thread. The {@code offered} and {@code polled}
+ * counters report only successful transfers; compare those, not the raw
+ * attempt score.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=WorkQueueBenchmark
+ * mvn -Pjmh verify -Djmh.include="WorkQueueBenchmark.p64" -Djmh.args="-p queueType=mpmc,array"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkQueueBenchmark {
+
+    private static final Runnable TASK = () -> { };
+
+    @State(Scope.Group)
+    public static class QueueState {
+
+        @Param({"mpmc", "array", "linked"})
+        String queueType;
+
+        @Param({"1024"})
+        int capacity;
+
+        BlockingQueue<Runnable> queue;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            queue = switch (queueType) {
+                case "mpmc" -> new MpmcBlockingQueue<>(capacity);
+                case "array" -> new ArrayBlockingQueue<>(capacity);
+                case "linked" -> new LinkedBlockingQueue<>(capacity);
+                default -> throw new IllegalArgumentException("Unknown queueType: " + queueType);
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfers {
+        public long offered;
+        public long polled;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            offered = 0;
+            polled = 0;
+        }
+    }
+
+    private static boolean produce(QueueState state, Transfers transfers) {
+        boolean added = state.queue.offer(TASK);
+        if (added) {
+            transfers.offered++;
+        }
+        return added;
+    }
+
+    private static Runnable consume(QueueState state, Transfers transfers) {
+        Runnable task = state.queue.poll();
+        if (task != null) {
+            transfers.polled++;
+        }
+        return task;
+    }
+
+    @Benchmark
+    @Group("p1")
+    @GroupThreads(1)
+    public boolean p1Producer(QueueState state, Transfers transfers) {
+        return produce(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p1")
+    @GroupThreads(4)
+    public Runnable p1Consumer(QueueState state, Transfers transfers) {
+        return consume(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p4")
+    @GroupThreads(4)
+    public boolean p4Producer(QueueState state, Transfers transfers) {
+        return produce(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p4")
+    @GroupThreads(4)
+    public Runnable p4Consumer(QueueState state, Transfers transfers) {
+        return consume(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p16")
+    @GroupThreads(16)
+    public boolean p16Producer(QueueState state, Transfers transfers) {
+        return produce(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p16")
+    @GroupThreads(4)
+    public Runnable p16Consumer(QueueState state, Transfers transfers) {
+        return consume(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p64")
+    @GroupThreads(64)
+    public boolean p64Producer(QueueState state, Transfers transfers) {
+        return produce(state, transfers);
+    }
+
+    @Benchmark
+    @Group("p64")
+    @GroupThreads(4)
+    public Runnable p64Consumer(QueueState state, Transfers transfers) {
+        return consume(state, transfers);
+    }
+}
@@ -0,0 +1,117 @@
+package com.codeandcandles.tutorials.java8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link OptionalUsageDemo} lookup, {@code findUserNameById}, over a {@code HashMap<Long, String>}
+ * and over an {@link OffHeapLongStringMap}, at 1M–100M users named {@code "user<id>"}.
+ *
+ * <p>
+ * Each invocation looks up one id from a precomputed random sequence; one in ten ids does not
+ * exist, so the empty-{@code Optional} path is measured too. The footprint of the store is
+ * measured once after building it and reported through {@link AuxCounters} as secondary results
+ * next to the score, so it also lands in the JMH result file ({@code -rf json}):
+ * </p>
+ * <ul>
+ *     <li><strong>heapMb</strong> – heap used after a full GC, minus the baseline before building.</li>
+ *     <li><strong>offHeapMb</strong> – direct memory held by the off-heap map.</li>
+ *     <li><strong>buildMs</strong> – time to insert all entries.</li>
+ * </ul>
+ *
+ * <p>
+ * JMH forks a fresh JVM per parameter combination, so each store is measured alone. At 100M
+ * entries the {@code HashMap} needs a heap of about 12 GB and the off-heap map about 5.5 GB of
+ * direct memory; lower the sizes with {@code -p entries=...} on smaller machines.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=LongStringMapBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g", "-XX:MaxDirectMemorySize=12g"})
+public class LongStringMapBenchmark {
+
+    private static final int LOOKUP_MASK = (1 << 20) - 1;
+
+    @Param({"1000000", "10000000", "100000000"})
+    int entries;
+
+    @Param({"HASH_MAP", "OFF_HEAP"})
+    String store;
+
+    private Map<Long, String> hashMap;
+    private OffHeapLongStringMap offHeap;
+    private long[] ids;
+    private int next;
+
+    private long heapMb;
+    private long offHeapMb;
+    private long buildMs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long start = System.nanoTime();
+        if (store.equals("HASH_MAP")) {
+            hashMap = new HashMap<>(entries * 4 / 3 + 1);
+            for (long id = 1; id <= entries; id++) {
+                hashMap.put(id, "user" + id);
+            }
+        } else {
+            offHeap = new OffHeapLongStringMap(entries);
+            for (long id = 1; id <= entries; id++) {
+                offHeap.put(id, "user" + id);
+            }
+        }
+        buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.gc();
+        heapMb = (memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024);
+        offHeapMb = offHeap == null ? 0 : offHeap.getOffHeapBytes() / (1024 * 1024);
+
+        SplittableRandom random = new SplittableRandom(42);
+        ids = new long[LOOKUP_MASK + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextLong(entries + entries / 9);     // ~10% misses
+        }
+    }
+
+    /**
+     * The trial's footprint, republished every iteration so JMH reports it with each result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long heapMb;
+        public long offHeapMb;
+        public long buildMs;
+
+        @Setup(Level.Iteration)
+        public void publish(LongStringMapBenchmark benchmark) {
+            heapMb = benchmark.heapMb;
+            offHeapMb = benchmark.offHeapMb;
+            buildMs = benchmark.buildMs;
+        }
+    }
+
+    @Benchmark
+    public Optional<String> findUserNameById(Footprint footprint) {
+        long id = ids[next++ & LOOKUP_MASK];
+        return hashMap != null ? Optional.ofNullable(hashMap.get(id)) : offHeap.get(id);
+    }
+}
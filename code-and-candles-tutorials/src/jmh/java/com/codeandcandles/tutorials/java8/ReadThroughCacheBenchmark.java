@@ -0,0 +1,147 @@
+package com.codeandcandles.tutorials.java8;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code findUserNameById} over 1M users with Zipfian key popularity, straight against the store
+ * and through a {@link ReadThroughCache}, from 1 and 8 threads.
+ *
+ * <p>
+ * {@code storeLatencyMicros} simulates the backing store: {@code 0} measures the cache's own
+ * overhead against an in-memory map, a non-zero value shows what the hit rate buys. The key
+ * sequence comes from {@link ZipfianKeys}; each thread walks it from its own offset. The cache
+ * metrics are reported through {@link AuxCounters} as secondary results next to the score, so they
+ * also land in the JMH result file ({@code -rf json}):
+ * </p>
+ * <ul>
+ *     <li><strong>hitRate</strong> – share of lookups in the iteration answered without a load.</li>
+ *     <li><strong>evictions</strong> – entries evicted during the iteration.</li>
+ *     <li><strong>loadP99Micros</strong> – p99 load latency since the start of the trial; the
+ *         cache's histogram cannot be read per iteration.</li>
+ * </ul>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=ReadThroughCacheBenchmark -Djmh.args="-p skew=0.99"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadThroughCacheBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int KEY_MASK = (1 << 20) - 1;
+
+    @Param({"10000", "100000"})
+    int cacheSize;
+
+    @Param({"0.8", "0.99"})
+    double skew;
+
+    @Param({"0", "50"})
+    long storeLatencyMicros;
+
+    private OffHeapLongStringMap store;
+    private ReadThroughCache<Long, String> cache;
+    private long[] keys;
+
+    private long hitsBefore;
+    private long missesBefore;
+    private long evictionsBefore;
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new OffHeapLongStringMap(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            store.put(id, "user" + id);
+        }
+        cache = new ReadThroughCache<>(this::findUserNameById, cacheSize,
+                Duration.ofMinutes(10), Duration.ofMinutes(1));
+        keys = ZipfianKeys.sample(KEY_MASK + 1, USERS, skew, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        hitsBefore = cache.getHitCount() + cache.getNegativeHitCount();
+        missesBefore = cache.getMissCount();
+        evictionsBefore = cache.getEvictionCount();
+        reported.set(false);
+    }
+
+    /**
+     * The cache metrics of one iteration. JMH sums counters over threads, so only the first thread
+     * to tear down reports them and the others report zero.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CacheMetrics {
+        public double hitRate;
+        public long evictions;
+        public double loadP99Micros;
+
+        @TearDown(Level.Iteration)
+        public void publish(ReadThroughCacheBenchmark benchmark) {
+            if (!benchmark.reported.compareAndSet(false, true)) {
+                hitRate = 0;
+                evictions = 0;
+                loadP99Micros = 0;
+                return;
+            }
+            ReadThroughCache<Long, String> cache = benchmark.cache;
+            long hits = cache.getHitCount() + cache.getNegativeHitCount() - benchmark.hitsBefore;
+            long lookups = hits + cache.getMissCount() - benchmark.missesBefore;
+            hitRate = lookups == 0 ? 0.0 : (double) hits / lookups;
+            evictions = cache.getEvictionCount() - benchmark.evictionsBefore;
+            loadP99Micros = cache.getLoadLatency().getValueAtPercentile(99) / 1000.0;
+        }
+    }
+
+    /**
+     * Each benchmark thread's position in the key sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().threadId() * 7919) & KEY_MASK;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<String> uncached1Thread(Cursor cursor) {
+        return findUserNameById(keys[cursor.next++ & KEY_MASK]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<String> cached1Thread(Cursor cursor, CacheMetrics metrics) {
+        return cache.get(keys[cursor.next++ & KEY_MASK]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<String> cached8Threads(Cursor cursor, CacheMetrics metrics) {
+        return cache.get(keys[cursor.next++ & KEY_MASK]);
+    }
+
+    private Optional<String> findUserNameById(long id) {
+        if (storeLatencyMicros > 0) {
+            LockSupport.parkNanos(storeLatencyMicros * 1000);
+        }
+        return store.get(id);
+    }
+}
@@ -0,0 +1,102 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Scan throughput of the {@link FilterAndMapDemo} and {@link GroupByDemo} queries over object
+ * lists against the same rows in a {@link ColumnarTable}.
+ *
+ * <ul>
+ *     <li>{@code *FilterMap} – active users' emails. The columnar side has to build a
+ *         {@code String} per email from its UTF-8 arena, which the object side gets for free.</li>
+ *     <li>{@code *CountActive} – how many users are active: one {@code BitSet} cardinality
+ *         against a pass over every {@code User}.</li>
+ *     <li>{@code *GroupBy} – employees per department: a pass over an {@code int[]} against
+ *         {@code groupingBy(department, counting())}.</li>
+ * </ul>
+ *
+ * <p>
+ * The score is queries per second; multiply by {@code dataSize} for rows scanned per second.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=ColumnarScanBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ColumnarScanBenchmark {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Legal", "Support"};
+
+    @Param({"1000000", "10000000"})
+    int dataSize;
+
+    private List<FilterAndMapDemo.User> users;
+    private List<GroupByDemo.Employee> employees;
+    private ColumnarTable userTable;
+    private ColumnarTable employeeTable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = new ArrayList<>(dataSize);
+        employees = new ArrayList<>(dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            users.add(new FilterAndMapDemo.User("user" + i, "user" + i + "@example.com", i % 3 != 0));
+            employees.add(new GroupByDemo.Employee("emp" + i, DEPARTMENTS[i % DEPARTMENTS.length]));
+        }
+        userTable = ColumnarTable.ofUsers(users);
+        employeeTable = ColumnarTable.ofEmployees(employees);
+    }
+
+    @Benchmark
+    public List<String> objectsFilterMap() {
+        return users.stream()
+                .filter(user -> user.isActive)
+                .map(user -> user.email)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> columnarFilterMap() {
+        return userTable.query()
+                .whereTrue("isActive")
+                .project("email");
+    }
+
+    @Benchmark
+    public long objectsCountActive() {
+        return users.stream()
+                .filter(user -> user.isActive)
+                .count();
+    }
+
+    @Benchmark
+    public long columnarCountActive() {
+        return userTable.query()
+                .whereTrue("isActive")
+                .count();
+    }
+
+    @Benchmark
+    public Map<String, Long> objectsGroupBy() {
+        return employees.stream()
+                .collect(Collectors.groupingBy(emp -> emp.department, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<String, Long> columnarGroupBy() {
+        return employeeTable.query().countBy("department");
+    }
+}
@@ -0,0 +1,83 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link StreamsPipelineDemo} pipeline (keep evens, square, collect and sum) as written, over a
+ * boxed list in two passes, against {@link IntPipeline} in one fused pass.
+ *
+ * <p>
+ * {@code twoPass} and {@code fusedTee} produce the same two results: the squared evens and their
+ * sum. {@code fusedReduce} and {@code intStreamSum} compute only the sum, which shows what the
+ * collected view costs on its own. The source list and array are built once in setup, so only the
+ * pipeline is measured.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=FusedPipelineBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FusedPipelineBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    int dataSize;
+
+    private List<Integer> numbers;
+    private int[] values;
+
+    @Setup
+    public void setup() {
+        values = IntStream.rangeClosed(1, dataSize).toArray();
+        numbers = IntStream.of(values).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void twoPass(Blackhole bh) {
+        List<Integer> squaredEvens = numbers.stream()
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .collect(Collectors.toList());
+        bh.consume(squaredEvens);
+
+        bh.consume(squaredEvens.stream()
+                .mapToInt(Integer::intValue)
+                .reduce(0, Integer::sum));
+    }
+
+    @Benchmark
+    public IntPipeline.Tee fusedTee() {
+        return IntPipeline.of(values)
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .tee(0, Integer::sum);
+    }
+
+    @Benchmark
+    public int fusedReduce() {
+        return IntPipeline.of(values)
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .sum();
+    }
+
+    @Benchmark
+    public int intStreamSum() {
+        return IntStream.of(values)
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .sum();
+    }
+}
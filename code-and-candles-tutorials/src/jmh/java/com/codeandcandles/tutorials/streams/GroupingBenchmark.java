@@ -0,0 +1,102 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link GroupByDemo}'s department grouping at 1M to 50M employees: the JDK collectors against
+ * {@link GroupingCollectors}.
+ *
+ * <ul>
+ *     <li>{@code groupingByList} – {@code groupingBy(department)}, the demo as written.</li>
+ *     <li>{@code groupingByCounting} – {@code groupingBy(department, counting())}, the fair JDK
+ *         baseline for a count.</li>
+ *     <li>{@code groupingByConcurrentCounting} – the same into one {@code ConcurrentHashMap}.</li>
+ *     <li>{@code stripedCounting} / {@code stripedSummarizing} – {@link GroupingCollectors},
+ *         pre-sized for the six departments.</li>
+ * </ul>
+ *
+ * <p>
+ * Employees share a small pool of names so 50M rows fit in the heap. {@code groupingByList} at
+ * 50M needs most of it for the lists alone; add {@code -prof gc} to compare allocation.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=GroupingBenchmark
+ * mvn -Pjmh verify -Djmh.include=GroupingBenchmark -Djmh.args="-p dataSize=1000000 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class GroupingBenchmark {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Legal", "Support"};
+    private static final int NAMES = 1024;
+
+    @Param({"1000000", "10000000", "50000000"})
+    int dataSize;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    private List<GroupByDemo.Employee> employees;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "emp" + i;
+        }
+        employees = new ArrayList<>(dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            employees.add(new GroupByDemo.Employee(names[i % NAMES], DEPARTMENTS[i % DEPARTMENTS.length]));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        employees = null;
+    }
+
+    private Stream<GroupByDemo.Employee> stream() {
+        return parallel ? employees.parallelStream() : employees.stream();
+    }
+
+    @Benchmark
+    public Map<String, List<GroupByDemo.Employee>> groupingByList() {
+        return stream().collect(Collectors.groupingBy(emp -> emp.department));
+    }
+
+    @Benchmark
+    public Map<String, Long> groupingByCounting() {
+        return stream().collect(Collectors.groupingBy(emp -> emp.department, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<String, Long> groupingByConcurrentCounting() {
+        return stream().collect(Collectors.groupingByConcurrent(emp -> emp.department, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<String, Long> stripedCounting() {
+        return stream().collect(GroupingCollectors.counting(emp -> emp.department, DEPARTMENTS.length));
+    }
+
+    @Benchmark
+    public Map<String, LongSummaryStatistics> stripedSummarizing() {
+        return stream().collect(GroupingCollectors.summarizingLong(
+                emp -> emp.department, emp -> emp.name.length(), DEPARTMENTS.length));
+    }
+}
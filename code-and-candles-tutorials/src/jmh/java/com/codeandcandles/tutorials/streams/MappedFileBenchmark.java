@@ -0,0 +1,91 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scans a generated multi-GB CSV ({@code id,department,salary}) and sums the salaries of one
+ * department, with {@code Files.lines()} and with {@link MappedRecordSpliterator}, sequentially
+ * and in parallel.
+ *
+ * <p>
+ * {@code filesLines} decodes every line into a {@code String} and parses its fields;
+ * {@code mappedRecords} compares and parses the bytes of the mapped file in place. The file is
+ * generated once with {@link BufferedChannelSink} into {@code java.io.tmpdir} and reused by later
+ * forks; delete {@code mapped-benchmark-*.csv} afterwards. The first iterations include reading
+ * the file into the page cache, which is why warm-up runs twice.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=MappedFileBenchmark -Djmh.args="-p fileSizeMb=4096"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MappedFileBenchmark {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Support"};
+
+    @Param({"2048"})
+    long fileSizeMb;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Path.of(System.getProperty("java.io.tmpdir"), "mapped-benchmark-" + fileSizeMb + "mb.csv");
+        long target = fileSizeMb * 1024 * 1024;
+        if (Files.exists(file) && Files.size(file) >= target) {
+            return;
+        }
+        try (BufferedChannelSink sink = BufferedChannelSink.create(file)) {
+            StringBuilder row = new StringBuilder();
+            for (long id = 1; sink.getBytesWritten() < target; id++) {
+                row.setLength(0);
+                row.append(id).append(',')
+                        .append(DEPARTMENTS[(int) (id % DEPARTMENTS.length)]).append(',')
+                        .append(30_000 + (id * 7919L) % 90_000);
+                sink.write(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            Stream<String> rows = parallel ? lines.parallel() : lines;
+            return rows.mapToLong(line -> {
+                int first = line.indexOf(',');
+                int second = line.indexOf(',', first + 1);
+                return line.startsWith("Engineering", first + 1) && second == first + 12
+                        ? Long.parseLong(line, second + 1, line.length(), 10)
+                        : 0;
+            }).sum();
+        }
+    }
+
+    @Benchmark
+    public long mappedRecords() throws IOException {
+        try (Stream<ByteBuffer> rows = MappedRecordSpliterator.lines(file, parallel)) {
+            return rows.mapToLong(row ->
+                    MappedRecordSpliterator.contentEquals(MappedRecordSpliterator.field(row, 1, (byte) ','), "Engineering")
+                            ? MappedRecordSpliterator.parseLong(MappedRecordSpliterator.field(row, 2, (byte) ','))
+                            : 0).sum();
+        }
+    }
+}
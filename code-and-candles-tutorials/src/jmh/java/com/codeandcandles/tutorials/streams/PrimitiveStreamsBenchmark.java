@@ -0,0 +1,93 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link ParallelStreamDemo} query (square, keep multiples of 10, count) over a boxed
+ * {@code List<Integer>}, an {@code int[]} and an off-heap {@link IntBuffer}.
+ *
+ * <ul>
+ *     <li>{@code boxedList} – the demo as written: {@code parallelStream()} over {@code Integer}s,
+ *         boxing a new {@code Integer} for every square above 127.</li>
+ *     <li>{@code primitiveArray} – {@code Arrays.stream(int[])}, the JDK spliterator.</li>
+ *     <li>{@code cacheLineArray} – the same array through {@link CacheLineSpliterators}.</li>
+ *     <li>{@code offHeapBuffer} – a cache-line aligned direct buffer through
+ *         {@link CacheLineSpliterators}.</li>
+ * </ul>
+ *
+ * <p>
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} shows bytes allocated per query, which is
+ * close to zero for the primitive sources and hundreds of megabytes for the boxed list.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=PrimitiveStreamsBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PrimitiveStreamsBenchmark {
+
+    @Param({"1000000", "10000000"})
+    int dataSize;
+
+    @Param({"true"})
+    boolean parallel;
+
+    private List<Integer> boxed;
+    private int[] array;
+    private IntBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array = IntStream.rangeClosed(1, dataSize).toArray();
+        boxed = Arrays.stream(array).boxed().collect(Collectors.toList());
+        buffer = CacheLineSpliterators.allocateAligned(dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            buffer.put(i, array[i]);
+        }
+    }
+
+    @Benchmark
+    public long boxedList() {
+        return (parallel ? boxed.parallelStream() : boxed.stream())
+                .map(n -> n * n)
+                .filter(square -> square % 10 == 0)
+                .count();
+    }
+
+    @Benchmark
+    public long primitiveArray() {
+        IntStream numbers = Arrays.stream(array);
+        return count(parallel ? numbers.parallel() : numbers);
+    }
+
+    @Benchmark
+    public long cacheLineArray() {
+        return count(CacheLineSpliterators.stream(array, parallel));
+    }
+
+    @Benchmark
+    public long offHeapBuffer() {
+        return count(CacheLineSpliterators.stream(buffer, parallel));
+    }
+
+    private static long count(IntStream numbers) {
+        return numbers
+                .map(n -> n * n)
+                .filter(square -> square % 10 == 0)
+                .count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link StreamsPipelineDemo} pipeline (keep evens, square, sum) as written, over a list that
+ * is built first, against {@link RunningAggregate} pulling the same values from a
+ * {@link LongSource}.
+ *
+ * <p>
+ * {@code listPipeline} includes building the source list, as the demo does; {@code streamingAggregate}
+ * also maintains min, max and a distinct-count sketch, so it does strictly more per value. At small
+ * sizes both are dominated by setup; at large ones the list variant is bound by allocation.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=StreamingAggregationBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingAggregationBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    int dataSize;
+
+    @Benchmark
+    public OptionalInt listPipeline() {
+        List<Integer> numbers = IntStream.rangeClosed(1, dataSize)
+                .boxed()
+                .collect(Collectors.toList());
+
+        List<Integer> squaredEvens = numbers.stream()
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .collect(Collectors.toList());
+
+        return squaredEvens.stream()
+                .mapToInt(Integer::intValue)
+                .reduce(Integer::sum);
+    }
+
+    @Benchmark
+    public long streamingAggregate() throws IOException {
+        return RunningAggregate.aggregate(LongSource.rangeClosed(1, dataSize)
+                        .filter(n -> n % 2 == 0)
+                        .map(n -> n * n))
+                .sum();
+    }
+}
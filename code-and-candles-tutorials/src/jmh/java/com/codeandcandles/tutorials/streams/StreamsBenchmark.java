@@ -0,0 +1,107 @@
+package com.codeandcandles.tutorials.streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the pipelines from every streams demo over generated data, sequentially
+ * and in parallel. Replaces the hand-rolled {@code System.currentTimeMillis()}
+ * timing in {@link ParallelStreamDemo}.
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.include=StreamsBenchmark
+ * mvn -Pjmh verify -Djmh.include=StreamsBenchmark.parallelStream -Djmh.args="-p parallel=true"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StreamsBenchmark {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Legal", "Support"};
+    private static final String[] WORDS = {"hello", "world", "java", "streams", "lambda", "optional"};
+
+    @Param({"10000", "1000000", "10000000"})
+    int dataSize;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    private List<Integer> numbers;
+    private List<String> words;
+    private List<FilterAndMapDemo.User> users;
+    private List<GroupByDemo.Employee> employees;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = IntStream.rangeClosed(1, dataSize)
+                .boxed()
+                .collect(Collectors.toList());
+
+        words = new ArrayList<>(dataSize);
+        users = new ArrayList<>(dataSize);
+        employees = new ArrayList<>(dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            words.add(WORDS[i % WORDS.length]);
+            users.add(new FilterAndMapDemo.User("user" + i, "user" + i + "@example.com", i % 3 != 0));
+            employees.add(new GroupByDemo.Employee("emp" + i, DEPARTMENTS[i % DEPARTMENTS.length]));
+        }
+    }
+
+    private <T> Stream<T> stream(List<T> source) {
+        return parallel ? source.parallelStream() : source.stream();
+    }
+
+    @Benchmark
+    public List<String> filterAndMap() {
+        return stream(users)
+                .filter(user -> user.isActive)
+                .map(user -> user.email)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<String, List<GroupByDemo.Employee>> groupBy() {
+        return stream(employees)
+                .collect(Collectors.groupingBy(emp -> emp.department));
+    }
+
+    @Benchmark
+    public long parallelStream() {
+        return stream(numbers)
+                .map(n -> n * n)
+                .filter(square -> square % 10 == 0)
+                .count();
+    }
+
+    @Benchmark
+    public int reduce() {
+        return stream(words)
+                .map(String::length)
+                .reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public OptionalInt streamsPipeline() {
+        List<Integer> squaredEvens = stream(numbers)
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n)
+                .collect(Collectors.toList());
+
+        return stream(squaredEvens)
+                .mapToInt(Integer::intValue)
+                .reduce(Integer::sum);
+    }
+}
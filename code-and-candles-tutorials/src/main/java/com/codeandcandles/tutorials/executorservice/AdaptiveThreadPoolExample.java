@@ -0,0 +1,120 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-generator harness for {@link AdaptiveThreadPoolExecutor}.
+ *
+ * <p>
+ * The generator submits 5 ms blocking tasks at an open-loop rate that changes in phases:
+ * </p>
+ * <ol>
+ *     <li><strong>baseline</strong> – 200 tasks/s (Little's law: about 1 busy worker)</li>
+ *     <li><strong>step</strong> – 1 500 tasks/s (about 8 busy workers)</li>
+ *     <li><strong>burst</strong> – alternating 250 ms at 3 000 tasks/s and 250 ms at 100 tasks/s</li>
+ *     <li><strong>idle</strong> – 20 tasks/s, the pool should shrink back towards its minimum</li>
+ * </ol>
+ *
+ * <p>
+ * Twice per second the harness prints the offered rate, the current core size, the queue
+ * depth and the p99 queue wait seen by the controller. The target p99 is 20 ms.
+ * </p>
+ *
+ * <p><strong>Sample Output (abridged):</strong></p>
+ * <pre>
+ * [baseline] offered=200/s  core=2   active=1   queued=0     p99Wait=0.1ms
+ * [step    ] offered=1500/s core=2   active=2   queued=7     p99Wait=1.8ms
+ * [step    ] offered=1500/s core=11  active=8   queued=0     p99Wait=18.2ms
+ * [step    ] offered=1500/s core=8   active=8   queued=0     p99Wait=0.4ms
+ * [burst   ] offered=3000/s core=13  active=15  queued=0     p99Wait=0.1ms
+ * [burst   ] offered=3000/s core=5   active=10  queued=58    p99Wait=17.3ms
+ * [idle    ] offered=20/s   core=1   active=0   queued=0     p99Wait=0.0ms
+ * </pre>
+ *
+ * <p>
+ * The exact numbers depend on the machine. The key observation is that the core size climbs
+ * within a few hundred milliseconds of the step, the p99 settles back under the target, and
+ * the pool shrinks again once traffic drops.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.AdaptiveThreadPoolExample"
+ * </pre>
+ */
+public class AdaptiveThreadPoolExample {
+
+    private static volatile String phase = "";
+    private static volatile int offeredRate;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        AdaptiveThreadPoolExecutor executor = new AdaptiveThreadPoolExecutor(
+                1,                             // minPoolSize
+                64,                            // maxPoolSize
+                20, TimeUnit.MILLISECONDS,     // target p99 queue wait
+                new LinkedBlockingQueue<>(10_000),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.printf(
+                "[%-8s] offered=%-6s core=%-3d active=%-3d queued=%-5d p99Wait=%.1fms%n",
+                phase,
+                offeredRate + "/s",
+                executor.getCorePoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                executor.getLastP99QueueLatencyNanos() / 1_000_000.0
+        ), 500, 500, TimeUnit.MILLISECONDS);
+
+        drive(executor, "baseline", 200, 3_000);
+        drive(executor, "step", 1_500, 5_000);
+        for (int i = 0; i < 8; i++) {
+            drive(executor, "burst", 3_000, 250);
+            drive(executor, "burst", 100, 250);
+        }
+        drive(executor, "idle", 20, 4_000);
+
+        reporter.shutdown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Submits tasks at a fixed rate for the given duration. Open loop: the schedule does not
+     * slow down when the pool falls behind, just like real clients.
+     */
+    private static void drive(ThreadPoolExecutor executor, String name, int ratePerSecond, long durationMs) {
+        phase = name;
+        offeredRate = ratePerSecond;
+
+        long intervalNanos = 1_000_000_000L / ratePerSecond;
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        long next = System.nanoTime();
+
+        while (next < end) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            executor.execute(AdaptiveThreadPoolExample::blockingWork);
+            next += intervalNanos;
+        }
+    }
+
+    private static void blockingWork() {
+        try {
+            Thread.sleep(5); // simulate a downstream call
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ThreadPoolExecutor} that resizes itself to hold a target p99 queue latency.
+ *
+ * <p>
+ * {@link CustomThreadPoolExample} hard-codes {@code core=2, max=4}. Those numbers are only
+ * right for one particular load. This executor instead measures, for every task:
+ * </p>
+ * <ul>
+ *     <li><strong>queue wait</strong> – time between {@code execute()} and {@code beforeExecute()}</li>
+ *     <li><strong>service time</strong> – time between {@code beforeExecute()} and {@code afterExecute()}</li>
+ * </ul>
+ *
+ * <p>
+ * A background controller wakes up every {@code controlInterval} and adjusts
+ * {@link #setCorePoolSize(int)} / {@link #setMaximumPoolSize(int)}:
+ * </p>
+ * <ul>
+ *     <li>It computes the Little's-law estimate {@code workers = arrivalRate × meanServiceTime}
+ *         for the last interval. The pool is never shrunk below it.</li>
+ *     <li>If the observed p99 queue wait is above the target, the pool grows additively
+ *         (at least one thread, or straight to the Little's-law estimate if that is larger).</li>
+ *     <li>If the p99 is comfortably below the target (under half of it), the pool shrinks
+ *         multiplicatively. This is the AIMD shape, inverted: adding threads is the cautious
+ *         step, and removing them is the fast one once the latency budget is clearly met.</li>
+ * </ul>
+ *
+ * <p>
+ * The pool size always stays within {@code [minPoolSize, maxPoolSize]}. The maximum pool size is kept at
+ * twice the core size (capped) so a bounded queue that fills up between two controller ticks can still
+ * spill into extra threads.
+ * </p>
+ *
+ * <p>
+ * Tasks are wrapped on {@link #execute(Runnable)} to carry their enqueue timestamp. As a consequence
+ * {@link #shutdownNow()} and {@link #getQueue()} expose the wrappers, and {@link #remove(Runnable)}
+ * only works with the instances found in the queue.
+ * </p>
+ *
+ * <p>
+ * The class is final because the constructor starts the controller, which calls back into
+ * {@code this}; a subclass would be reached before its own fields were set. {@link #shutdown()}
+ * and {@link #shutdownNow()} stop the controller, so the pool size stays fixed while the queue drains.
+ * </p>
+ *
+ * <p>
+ * See {@link AdaptiveThreadPoolExample} for a load generator that shows the pool converging under
+ * step and burst traffic.
+ * </p>
+ */
+public final class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final int SAMPLE_CAPACITY = 4096;
+    private static final double SHRINK_FACTOR = 0.75;
+
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long targetQueueLatencyNanos;
+    private final long controlIntervalNanos;
+
+    private final AtomicLongArray waitSamples = new AtomicLongArray(SAMPLE_CAPACITY);
+    private final AtomicLong sampleCursor = new AtomicLong();
+    private final long[] scratch = new long[SAMPLE_CAPACITY];
+    private long lastCursor;
+
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder serviced = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+
+    private volatile long lastP99QueueLatencyNanos;
+    private volatile double lastArrivalRate;
+    private volatile double lastMeanServiceNanos;
+
+    private final ScheduledExecutorService controller;
+
+    /**
+     * Creates an adaptive pool that re-evaluates its size every 100 ms.
+     *
+     * @param minPoolSize        lower bound for the core pool size (also the initial size)
+     * @param maxPoolSize        upper bound for both core and maximum pool size
+     * @param targetQueueLatency p99 queue wait the controller tries to hold
+     * @param unit               unit of {@code targetQueueLatency}
+     * @param workQueue          queue holding tasks before they are executed
+     * @param handler            handler used when the queue is full and the pool is at its maximum
+     */
+    public AdaptiveThreadPoolExecutor(int minPoolSize,
+                                      int maxPoolSize,
+                                      long targetQueueLatency,
+                                      TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue,
+                                      RejectedExecutionHandler handler) {
+        this(minPoolSize, maxPoolSize, targetQueueLatency, unit, 100, TimeUnit.MILLISECONDS, workQueue, handler);
+    }
+
+    /**
+     * Creates an adaptive pool with an explicit controller interval.
+     *
+     * @param controlInterval how often the controller re-evaluates the pool size
+     * @param controlUnit     unit of {@code controlInterval}
+     */
+    public AdaptiveThreadPoolExecutor(int minPoolSize,
+                                      int maxPoolSize,
+                                      long targetQueueLatency,
+                                      TimeUnit unit,
+                                      long controlInterval,
+                                      TimeUnit controlUnit,
+                                      BlockingQueue<Runnable> workQueue,
+                                      RejectedExecutionHandler handler) {
+        super(minPoolSize, boundedMax(minPoolSize, maxPoolSize), 30, TimeUnit.SECONDS, workQueue, handler);
+        if (minPoolSize < 1 || maxPoolSize < minPoolSize) {
+            throw new IllegalArgumentException("Require 1 <= minPoolSize <= maxPoolSize");
+        }
+        if (targetQueueLatency <= 0 || controlInterval <= 0) {
+            throw new IllegalArgumentException("Target latency and control interval must be positive");
+        }
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.targetQueueLatencyNanos = unit.toNanos(targetQueueLatency);
+        this.controlIntervalNanos = controlUnit.toNanos(controlInterval);
+
+        this.controller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "adaptive-pool-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        controller.scheduleAtFixedRate(this::adjust, controlIntervalNanos, controlIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        arrivals.increment();
+        super.execute(new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof TimedTask task) {
+            task.startedAt = System.nanoTime();
+            long slot = sampleCursor.getAndIncrement();
+            waitSamples.lazySet((int) (slot & (SAMPLE_CAPACITY - 1)), task.startedAt - task.enqueuedAt);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (r instanceof TimedTask task && task.startedAt != 0) {
+            serviced.increment();
+            serviceNanos.add(System.nanoTime() - task.startedAt);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        controller.shutdownNow();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        controller.shutdownNow();
+        return pending;
+    }
+
+    /**
+     * One controller step. Runs on the controller thread only, so the sampling
+     * cursor and scratch buffer need no further synchronization.
+     */
+    private void adjust() {
+        if (isShutdown()) {
+            return;
+        }
+
+        double intervalSeconds = controlIntervalNanos / 1_000_000_000.0;
+        long arrived = arrivals.sumThenReset();
+        long done = serviced.sumThenReset();
+        long busyNanos = serviceNanos.sumThenReset();
+
+        double arrivalRate = arrived / intervalSeconds;
+        double meanServiceNanos = done == 0 ? lastMeanServiceNanos : (double) busyNanos / done;
+        long p99 = Math.max(sampleP99(), oldestQueuedAge());
+
+        lastArrivalRate = arrivalRate;
+        lastMeanServiceNanos = meanServiceNanos;
+        lastP99QueueLatencyNanos = p99;
+
+        int current = getCorePoolSize();
+        int littleEstimate = (int) Math.ceil(arrivalRate * meanServiceNanos / 1_000_000_000.0);
+
+        int desired = current;
+        if (p99 > targetQueueLatencyNanos) {
+            desired = Math.max(current + 1, littleEstimate);
+        } else if (p99 < targetQueueLatencyNanos / 2 && getQueue().isEmpty()) {
+            desired = Math.max((int) (current * SHRINK_FACTOR), littleEstimate);
+        }
+        resize(Math.max(minPoolSize, Math.min(maxPoolSize, desired)));
+    }
+
+    private long sampleP99() {
+        long cursor = sampleCursor.get();
+        int count = (int) Math.min(cursor - lastCursor, SAMPLE_CAPACITY);
+        lastCursor = cursor;
+        if (count == 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            scratch[i] = waitSamples.get((int) ((cursor - 1 - i) & (SAMPLE_CAPACITY - 1)));
+        }
+        Arrays.sort(scratch, 0, count);
+        return scratch[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+    }
+
+    /**
+     * Tasks that have not started yet are not in the samples. If every worker is stuck
+     * on long tasks, the age of the queue head is the only sign that latency is building up.
+     */
+    private long oldestQueuedAge() {
+        Runnable head = getQueue().peek();
+        return head instanceof TimedTask task ? System.nanoTime() - task.enqueuedAt : 0;
+    }
+
+    private void resize(int core) {
+        int max = boundedMax(core, maxPoolSize);
+        if (core > getCorePoolSize()) {
+            // grow: raise the ceiling first, core may never exceed max
+            setMaximumPoolSize(max);
+            setCorePoolSize(core);
+        } else if (core < getCorePoolSize()) {
+            setCorePoolSize(core);
+            setMaximumPoolSize(max);
+        }
+    }
+
+    private static int boundedMax(int core, int limit) {
+        return Math.max(core, Math.min(limit, core * 2));
+    }
+
+    /**
+     * @return p99 queue wait observed during the last controller interval, in nanoseconds
+     */
+    public long getLastP99QueueLatencyNanos() {
+        return lastP99QueueLatencyNanos;
+    }
+
+    /**
+     * @return task arrival rate observed during the last controller interval, in tasks per second
+     */
+    public double getLastArrivalRate() {
+        return lastArrivalRate;
+    }
+
+    /**
+     * @return mean task service time observed during the last controller interval, in nanoseconds
+     */
+    public double getLastMeanServiceNanos() {
+        return lastMeanServiceNanos;
+    }
+
+    /**
+     * Wrapper carrying the timestamps the controller needs.
+     */
+    private static final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedAt = System.nanoTime();
+        private long startedAt;
+
+        TimedTask(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded work queue that lets an {@link OverloadPolicy} refuse tasks on the way in and drop them
+ * on the way out, based on queue fill and on how long each task waited.
+ *
+ * <p>
+ * Each task is stored with its enqueue time, which costs one small wrapper object per task.
+ * {@code offer()} consults the policy; the timed {@code offer()} and {@code put()} do not, because
+ * they are how a blocking policy places a task that was already rejected once.
+ * </p>
+ */
+final class AdmissionQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private record Stamped(Runnable task, long enqueuedAt) {
+    }
+
+    private final BlockingQueue<Stamped> delegate;
+    private final OverloadPolicy policy;
+    private final int capacity;
+
+    AdmissionQueue(int capacity, OverloadPolicy policy) {
+        this.delegate = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (!policy.admit(delegate.size(), capacity)) {
+            return false;
+        }
+        return delegate.offer(new Stamped(task, System.nanoTime()));
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.offer(new Stamped(task, System.nanoTime()), timeout, unit);
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        delegate.put(new Stamped(task, System.nanoTime()));
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        while (true) {
+            Runnable task = accept(delegate.take());
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Stamped next = delegate.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return null;
+            }
+            Runnable task = accept(next);
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        Stamped next;
+        while ((next = delegate.poll()) != null) {
+            Runnable task = accept(next);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the task if the policy lets it run, otherwise drops it and returns {@code null}.
+     */
+    private Runnable accept(Stamped stamped) {
+        if (policy.run(System.nanoTime() - stamped.enqueuedAt())) {
+            return stamped.task();
+        }
+        if (stamped.task() instanceof Future<?> future) {
+            future.cancel(false);
+        }
+        return null;
+    }
+
+    @Override
+    public Runnable peek() {
+        Stamped head = delegate.peek();
+        return head == null ? null : head.task();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        for (Iterator<Stamped> it = delegate.iterator(); it.hasNext(); ) {
+            if (it.next().task() == o) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        List<Stamped> drained = new ArrayList<>();
+        int n = delegate.drainTo(drained, maxElements);
+        for (Stamped stamped : drained) {
+            c.add(stamped.task());
+        }
+        return n;
+    }
+
+    @Override
+    public Iterator<Runnable> iterator() {
+        Iterator<Stamped> it = delegate.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                return it.next().task();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites {@link CallableFutureExample} and {@link ExceptionHandlingExample} with {@link AsyncTask},
+ * so that no thread waits in {@code Future.get()}.
+ *
+ * <p>
+ * Three small graphs run on the same four-thread pool:
+ * </p>
+ * <ol>
+ *     <li><strong>value</strong> – a task sleeps for one second and returns {@code 42}; a callback prints it when it is ready,
+ *         instead of the main thread blocking on {@code get()}.</li>
+ *     <li><strong>fan-out / fan-in</strong> – one input feeds three branches; the slow branch exceeds
+ *         its timeout, and the whole node falls back to a default list.</li>
+ *     <li><strong>error</strong> – a task throws; the callback receives the original
+ *         {@code RuntimeException}, not a {@code CompletionException} wrapper.</li>
+ * </ol>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * Caught exception from task: java.lang.RuntimeException: Something went wrong!
+ * Doing other work...
+ * Fan-out result: [fallback]
+ * Result: 42
+ * </pre>
+ *
+ * <p>
+ * Each line is printed by a callback as soon as its graph completes, so the order follows the
+ * timings (immediate failure, 200 ms timeout, 1 s task) and not the order of submission. The failing
+ * task often reports before the main thread gets to "Doing other work...". The main
+ * thread waits once at the very end, only so the JVM does not exit before the callbacks run.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.AsyncCompositionExample"
+ * </pre>
+ */
+public class AsyncCompositionExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // 1. CallableFutureExample without get()
+        AsyncTask<Integer> value = AsyncTask.supply(executor, () -> {
+                    Thread.sleep(1000);
+                    return 42;
+                })
+                .whenDone((result, error) -> System.out.println("Result: " + result));
+
+        // 2. fan-out / fan-in with a timeout and a fallback
+        AsyncTask<List<String>> fanOut = AsyncTask.supply(executor, () -> "user-1")
+                .<String>fanOut(List.of(
+                        id -> id + ":orders",
+                        id -> id + ":profile",
+                        id -> slowLookup(id + ":recommendations")
+                ))
+                .orTimeout(200, TimeUnit.MILLISECONDS)
+                .fallback(List.of("fallback"))
+                .whenDone((result, error) -> System.out.println("Fan-out result: " + result));
+
+        // 3. ExceptionHandlingExample without get()
+        AsyncTask<Object> failing = AsyncTask.supply(executor, () -> {
+                    throw new RuntimeException("Something went wrong!");
+                })
+                .whenDone((result, error) -> {
+                    if (error != null) {
+                        System.out.println("Caught exception from task: " + error);
+                    }
+                });
+
+        System.out.println("Doing other work...");
+
+        // keep the JVM alive until all graphs have finished
+        value.toCompletableFuture()
+                .thenCombine(fanOut.toCompletableFuture(), (a, b) -> b)
+                .exceptionally(error -> null)
+                .thenCompose(ignored -> failing.toCompletableFuture().handle((r, e) -> null))
+                .join();
+
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static String slowLookup(String key) {
+        try {
+            Thread.sleep(1000); // slower than the 200 ms budget
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return key;
+    }
+}
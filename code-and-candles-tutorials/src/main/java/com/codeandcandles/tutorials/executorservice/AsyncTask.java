@@ -0,0 +1,193 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A small task-graph API on top of {@link CompletableFuture} that replaces the blocking
+ * {@code Future.get()} calls in {@link CallableFutureExample} and {@link ExceptionHandlingExample}.
+ *
+ * <p>
+ * An {@code AsyncTask} is a node in the graph. Each stage is scheduled on the executor the graph
+ * was started with, and nothing in this class ever blocks a thread while it waits for a result:
+ * </p>
+ * <ul>
+ *     <li><strong>fan-out</strong> – {@link #fanOut(List)} runs several branches on the same input</li>
+ *     <li><strong>fan-in</strong> – {@link #allOf(List)} joins many tasks into one list, in order</li>
+ *     <li><strong>timeouts</strong> – {@link #orTimeout(long, TimeUnit)} fails the node with a
+ *         {@link java.util.concurrent.TimeoutException}</li>
+ *     <li><strong>fallbacks</strong> – {@link #fallback(Object)} and {@link #recover(Function)}</li>
+ *     <li><strong>error propagation</strong> – a failure skips the remaining stages and reaches the
+ *         first {@code recover}/{@code whenDone} with the <em>original</em> exception, unwrapped from
+ *         {@link CompletionException} the way {@code ExceptionHandlingExample} unwraps
+ *         {@link ExecutionException#getCause()}</li>
+ * </ul>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * AsyncTask.supply(pool, () -&gt; loadUser(id))
+ *         .fanOut(List.of(this::loadOrders, this::loadProfile))
+ *         .orTimeout(200, TimeUnit.MILLISECONDS)
+ *         .recover(error -&gt; List.of())
+ *         .whenDone((result, error) -&gt; respond(result));
+ * </pre>
+ *
+ * @param <T> result type of this node
+ */
+public final class AsyncTask<T> {
+
+    private final CompletableFuture<T> future;
+    private final Executor executor;
+
+    private AsyncTask(CompletableFuture<T> future, Executor executor) {
+        this.future = future;
+        this.executor = executor;
+    }
+
+    // ---------------------------------------------------------------------
+    // Sources
+    // ---------------------------------------------------------------------
+
+    /**
+     * Starts a graph by running {@code task} on {@code executor}. Checked exceptions thrown by the
+     * task fail the node, just as they would end up in an {@code ExecutionException} with
+     * {@code submit()}.
+     */
+    public static <T> AsyncTask<T> supply(Executor executor, Callable<? extends T> task) {
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(task);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return new AsyncTask<>(future, executor);
+    }
+
+    /**
+     * Wraps an already running asynchronous operation, for example a non-blocking HTTP client call.
+     * Later stages run on {@code executor}.
+     */
+    public static <T> AsyncTask<T> from(CompletionStage<T> stage, Executor executor) {
+        return new AsyncTask<>(stage.toCompletableFuture(), Objects.requireNonNull(executor));
+    }
+
+    /**
+     * Fan-in: completes with all results, in the order of {@code tasks}, once every task has
+     * completed. Fails with the first failure (in list order) if any task fails.
+     */
+    public static <T> AsyncTask<List<T>> allOf(List<AsyncTask<T>> tasks) {
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException("allOf needs at least one task");
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = tasks.get(i).future;
+        }
+        CompletableFuture<List<T>> joined = CompletableFuture.allOf(futures).thenApply(ignored -> {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (AsyncTask<T> task : tasks) {
+                results.add(task.future.join()); // already complete: never blocks
+            }
+            return results;
+        });
+        return new AsyncTask<>(joined, tasks.get(0).executor);
+    }
+
+    // ---------------------------------------------------------------------
+    // Composition
+    // ---------------------------------------------------------------------
+
+    /**
+     * Transforms the result on the graph's executor.
+     */
+    public <R> AsyncTask<R> then(Function<? super T, ? extends R> fn) {
+        return new AsyncTask<>(future.thenApplyAsync(fn, executor), executor);
+    }
+
+    /**
+     * Continues with another asynchronous step that depends on this result.
+     */
+    public <R> AsyncTask<R> thenCompose(Function<? super T, AsyncTask<R>> fn) {
+        return new AsyncTask<>(future.thenComposeAsync(value -> fn.apply(value).future, executor), executor);
+    }
+
+    /**
+     * Fan-out then fan-in: runs each branch on the executor with this task's result as input, and
+     * completes with the branch results in order.
+     */
+    public <R> AsyncTask<List<R>> fanOut(List<? extends Function<? super T, ? extends R>> branches) {
+        return thenCompose(value -> {
+            List<AsyncTask<R>> children = new ArrayList<>(branches.size());
+            for (Function<? super T, ? extends R> branch : branches) {
+                children.add(supply(executor, () -> branch.apply(value)));
+            }
+            return allOf(children);
+        });
+    }
+
+    /**
+     * Fails this node with a {@link java.util.concurrent.TimeoutException} if it has not completed
+     * in time. The timer runs on the JDK's shared delay scheduler, not on a pool thread.
+     */
+    public AsyncTask<T> orTimeout(long timeout, TimeUnit unit) {
+        return new AsyncTask<>(future.copy().orTimeout(timeout, unit), executor);
+    }
+
+    /**
+     * Replaces any failure (including a timeout) with {@code value}.
+     */
+    public AsyncTask<T> fallback(T value) {
+        return recover(error -> value);
+    }
+
+    /**
+     * Replaces a failure with a value computed from the unwrapped cause.
+     */
+    public AsyncTask<T> recover(Function<? super Throwable, ? extends T> fn) {
+        return new AsyncTask<>(future.exceptionally(error -> fn.apply(unwrap(error))), executor);
+    }
+
+    /**
+     * Registers a final callback. {@code error} is {@code null} on success, in which case
+     * {@code result} is the value, possibly {@code null} itself. On failure {@code result} is
+     * {@code null} and {@code error} is already unwrapped.
+     */
+    public AsyncTask<T> whenDone(BiConsumer<? super T, ? super Throwable> callback) {
+        return new AsyncTask<>(future.whenComplete((result, error) ->
+                callback.accept(result, error == null ? null : unwrap(error))), executor);
+    }
+
+    /**
+     * Exposes the underlying future, e.g. to return it from an async controller method.
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+
+    /**
+     * Strips the {@link CompletionException}/{@link ExecutionException} wrappers that
+     * {@code CompletableFuture} adds between stages, returning the exception the task actually threw.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,247 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Gathers small submitted items into batches and hands each batch to one handler call on a pool,
+ * so the queue handoff and worker wakeup are paid once per batch instead of once per item.
+ *
+ * <p>
+ * A batch is flushed when it reaches {@code maxBatchSize} items or when its first item has waited
+ * {@code linger}, whichever comes first. The handler receives the items in submission order and
+ * must return one result per item, in the same order. Each {@link #submit(Object)} still returns
+ * its own future:
+ * </p>
+ * <ul>
+ *     <li>it completes with the handler's result for that item,</li>
+ *     <li>or fails with the handler's exception, which fails every item of the batch,</li>
+ *     <li>or fails with {@link RejectedExecutionException} if the pool refuses the batch.</li>
+ * </ul>
+ *
+ * <p>
+ * Linger timers run on one daemon thread owned by this executor. {@link #close()} flushes the
+ * pending batch and stops that thread; the pool itself is left to its owner.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * BatchingExecutor&lt;Long, User&gt; loader = new BatchingExecutor&lt;&gt;(
+ *         pool, 100, Duration.ofMillis(2), ids -&gt; userDao.findAllByIds(ids));
+ * CompletableFuture&lt;User&gt; user = loader.submit(42L);
+ * </pre>
+ *
+ * @param <I> item type
+ * @param <O> per-item result type
+ */
+public class BatchingExecutor<I, O> implements AutoCloseable {
+
+    private final Executor pool;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Function<? super List<I>, ? extends List<? extends O>> handler;
+    private final ScheduledExecutorService timer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch current;
+    private boolean closed;
+
+    private final LongAdder items = new LongAdder();
+    private final LongAdder sizeFlushes = new LongAdder();
+    private final LongAdder lingerFlushes = new LongAdder();
+
+    /**
+     * @param pool         executor that runs the handler, e.g. a fixed thread pool
+     * @param maxBatchSize flush as soon as a batch has this many items
+     * @param linger       flush a non-empty batch at the latest this long after its first item
+     * @param handler      processes a batch; returns one result per item, in order
+     */
+    public BatchingExecutor(Executor pool,
+                            int maxBatchSize,
+                            Duration linger,
+                            Function<? super List<I>, ? extends List<? extends O>> handler) {
+        if (maxBatchSize <= 0 || linger.isNegative()) {
+            throw new IllegalArgumentException("maxBatchSize must be positive and linger non-negative");
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.handler = Objects.requireNonNull(handler);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batching-linger");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Adds an item to the current batch.
+     *
+     * @return a future for this item's result
+     * @throws RejectedExecutionException if the executor is closed
+     */
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        Batch full = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("BatchingExecutor is closed");
+            }
+            Batch batch = current;
+            if (batch == null) {
+                batch = current = new Batch();
+                if (maxBatchSize > 1) {
+                    Batch lingering = batch;
+                    batch.timer = timer.schedule(() -> flushOnLinger(lingering), lingerNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            batch.add(item, future);
+            if (batch.size == maxBatchSize) {
+                current = null;
+                full = batch;
+            }
+        } finally {
+            lock.unlock();
+        }
+        items.increment();
+        if (full != null) {
+            if (full.timer != null) {
+                full.timer.cancel(false);
+            }
+            sizeFlushes.increment();
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * Flushes the pending batch now, without waiting for size or linger.
+     */
+    public void flush() {
+        Batch batch = detach(null);
+        if (batch != null) {
+            if (batch.timer != null) {
+                batch.timer.cancel(false);
+            }
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Flushes the pending batch and stops accepting items.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+        timer.shutdownNow();
+    }
+
+    private void flushOnLinger(Batch batch) {
+        if (detach(batch) != null) {
+            lingerFlushes.increment();
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Removes the current batch if it is {@code expected} (or any batch when {@code expected} is null).
+     */
+    private Batch detach(Batch expected) {
+        lock.lock();
+        try {
+            Batch batch = current;
+            if (batch == null || (expected != null && batch != expected)) {
+                return null;
+            }
+            current = null;
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Batch batch) {
+        try {
+            pool.execute(batch::run);
+        } catch (RejectedExecutionException e) {
+            batch.fail(e);
+        }
+    }
+
+    /**
+     * @return number of items submitted
+     */
+    public long getItemCount() {
+        return items.sum();
+    }
+
+    /**
+     * @return number of batches flushed because they were full
+     */
+    public long getSizeFlushCount() {
+        return sizeFlushes.sum();
+    }
+
+    /**
+     * @return number of batches flushed by the linger timer
+     */
+    public long getLingerFlushCount() {
+        return lingerFlushes.sum();
+    }
+
+    private final class Batch {
+        private final Object[] items = new Object[maxBatchSize];
+        private final CompletableFuture<?>[] futures = new CompletableFuture<?>[maxBatchSize];
+        private int size;
+        private ScheduledFuture<?> timer;
+
+        void add(I item, CompletableFuture<O> future) {
+            items[size] = item;
+            futures[size] = future;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        void run() {
+            List<? extends O> results;
+            try {
+                results = handler.apply((List<I>) Arrays.asList(items).subList(0, size));
+                if (results == null || results.size() != size) {
+                    throw new IllegalStateException("batch handler returned "
+                            + (results == null ? "null" : results.size() + " results") + " for " + size + " items");
+                }
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                ((CompletableFuture<O>) futures[i]).complete(results.get(i));
+            }
+        }
+
+        void fail(Throwable error) {
+            for (int i = 0; i < size; i++) {
+                futures[i].completeExceptionally(error);
+            }
+        }
+    }
+}
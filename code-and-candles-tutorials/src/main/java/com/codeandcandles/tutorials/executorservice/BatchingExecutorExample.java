@@ -0,0 +1,70 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Squares 1 000 numbers through a {@link BatchingExecutor} instead of submitting 1 000
+ * {@code Runnable}s as {@link BasicFixedThreadPoolExample} would.
+ *
+ * <p>
+ * Items are submitted one by one, each with its own future, but the pool only sees batches of up
+ * to 64 items. The last, partial batch is flushed by the 5 ms linger timer.
+ * </p>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * 7 squared = 49
+ * sum of squares = 332833500
+ * items=1000 sizeFlushes=15 lingerFlushes=1
+ * </pre>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.BatchingExecutorExample"
+ * </pre>
+ */
+public class BatchingExecutorExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try (BatchingExecutor<Integer, Long> squares = new BatchingExecutor<>(
+                pool, 64, Duration.ofMillis(5), BatchingExecutorExample::squareAll)) {
+
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(squares.submit(i));
+            }
+
+            System.out.println("7 squared = " + results.get(7).join());
+            long sum = 0;
+            for (CompletableFuture<Long> result : results) {
+                sum += result.join();
+            }
+            System.out.println("sum of squares = " + sum);
+            System.out.println("items=" + squares.getItemCount()
+                    + " sizeFlushes=" + squares.getSizeFlushCount()
+                    + " lingerFlushes=" + squares.getLingerFlushCount());
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /** One call per batch: a real handler would issue one bulk query or one vectorised loop. */
+    private static List<Long> squareAll(List<Integer> batch) {
+        List<Long> out = new ArrayList<>(batch.size());
+        for (int value : batch) {
+            out.add((long) value * value);
+        }
+        return out;
+    }
+}
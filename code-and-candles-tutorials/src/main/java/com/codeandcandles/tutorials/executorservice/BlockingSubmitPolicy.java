@@ -0,0 +1,85 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejection policy that makes the submitter wait, up to a timeout, for room in the queue.
+ *
+ * <p>
+ * This is the backpressure of {@code CallerRunsPolicy} without running the task on the caller:
+ * the caller is slowed down by at most {@code timeout}, never by the duration of a task. If the
+ * queue is still full after the timeout the task is rejected.
+ * </p>
+ *
+ * <p>
+ * It also works as a plain handler on any {@link ThreadPoolExecutor} with a bounded queue. The pool
+ * must keep at least one core thread, otherwise a task placed in the queue this way may wait for a
+ * thread that never starts.
+ * </p>
+ */
+public class BlockingSubmitPolicy extends OverloadPolicy {
+
+    private final long timeoutNanos;
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public BlockingSubmitPolicy(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    protected boolean handleOverload(Runnable task, ThreadPoolExecutor executor) {
+        blocked.increment();
+        long start = System.nanoTime();
+        boolean queued;
+        try {
+            queued = executor.getQueue().offer(task, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        } finally {
+            blockedNanos.add(System.nanoTime() - start);
+        }
+        if (!queued) {
+            timedOut.increment();
+            return false;
+        }
+        // shutdown() may have run while we waited; do not leave the task stranded in the queue
+        return !(executor.isShutdown() && executor.remove(task));
+    }
+
+    /**
+     * @return submissions that had to wait for room in the queue
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    /**
+     * @return total time submitters spent waiting, in nanoseconds
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+
+    /**
+     * @return waits that ended without room, and so in a rejection
+     */
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    @Override
+    protected String details() {
+        return ", blocked=" + getBlockedCount()
+                + ", blockedMs=" + TimeUnit.NANOSECONDS.toMillis(getBlockedNanos())
+                + ", timedOut=" + getTimedOutCount();
+    }
+}
@@ -0,0 +1,104 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load shedder based on queue delay, after the CoDel (controlled delay) algorithm as servers use it.
+ *
+ * <p>
+ * Queue length says little about latency; how long tasks wait says everything. The policy measures
+ * each task's queue wait when a worker takes it, and keeps the <em>minimum</em> wait over every
+ * {@code interval}. A minimum above {@code target} means the queue never emptied during the whole
+ * interval: a standing queue, not a burst. While that is the case the pool is overloaded, and
+ * every task that has waited more than twice the target is dropped instead of run. Its future, if
+ * it has one, is cancelled.
+ * </p>
+ *
+ * <p>
+ * The effect is that under overload the queue behaves as if it were only about {@code 2 * target}
+ * long, so the tasks that do run still meet their latency goal, while short bursts that drain
+ * within an interval are not touched. A full queue is rejected immediately, never run on the caller.
+ * </p>
+ *
+ * <p>
+ * Tasks submitted with {@code execute()} have no future to cancel, so their drop is only visible in
+ * {@link #getDroppedAtDequeueCount()}.
+ * </p>
+ */
+public class CoDelSheddingPolicy extends OverloadPolicy {
+
+    private final long targetNanos;
+    private final long intervalNanos;
+
+    private final LongAccumulator intervalMin = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final AtomicBoolean rolling = new AtomicBoolean();
+    private final LongAdder overloadedIntervals = new LongAdder();
+    private volatile long intervalEnd;
+    private volatile boolean overloaded;
+    private volatile long lastIntervalMin;
+
+    /**
+     * @param target   acceptable standing queue delay, e.g. 5 ms
+     * @param interval window over which the minimum delay is taken, e.g. 100 ms
+     */
+    public CoDelSheddingPolicy(Duration target, Duration interval) {
+        if (target.isNegative() || target.isZero() || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("target and interval must be positive");
+        }
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.intervalEnd = System.nanoTime() + intervalNanos;
+    }
+
+    @Override
+    protected boolean shouldRun(long sojournNanos) {
+        long now = System.nanoTime();
+        intervalMin.accumulate(sojournNanos);
+        if (now - intervalEnd >= 0 && rolling.compareAndSet(false, true)) {
+            try {
+                long min = intervalMin.getThenReset();
+                lastIntervalMin = min;
+                overloaded = min > targetNanos;
+                if (overloaded) {
+                    overloadedIntervals.increment();
+                }
+                intervalEnd = now + intervalNanos;
+            } finally {
+                rolling.set(false);
+            }
+        }
+        return !(overloaded && sojournNanos > 2 * targetNanos);
+    }
+
+    /**
+     * @return whether the last completed interval had a standing queue
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * @return minimum queue delay of the last completed interval, in nanoseconds
+     */
+    public long getLastIntervalMinDelayNanos() {
+        return lastIntervalMin;
+    }
+
+    /**
+     * @return number of intervals that ended in the overloaded state
+     */
+    public long getOverloadedIntervalCount() {
+        return overloadedIntervals.sum();
+    }
+
+    @Override
+    protected String details() {
+        return ", overloaded=" + isOverloaded()
+                + ", overloadedIntervals=" + getOverloadedIntervalCount()
+                + ", lastMinDelayMs=" + TimeUnit.NANOSECONDS.toMillis(getLastIntervalMinDelayNanos());
+    }
+}
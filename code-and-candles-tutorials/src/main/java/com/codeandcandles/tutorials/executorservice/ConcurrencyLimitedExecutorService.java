@@ -0,0 +1,92 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link ExecutorService} so that at most {@code maxConcurrency} tasks run at once.
+ *
+ * <p>
+ * The permit is taken <em>inside</em> the task, on the delegate's thread, not on the submitting
+ * thread. This is meant for a thread-per-task executor backed by virtual threads: a task waiting
+ * for a permit parks its virtual thread cheaply, and {@code submit()} never blocks the caller.
+ * Do not use it in front of a small platform-thread pool, where waiting tasks would hold pool
+ * threads.
+ * </p>
+ *
+ * <p>
+ * If the waiting thread is interrupted (for example by {@link #shutdownNow()}), the task is not run.
+ * Tasks created by {@code submit()} are cancelled, so callers blocked in {@code get()} are released.
+ * </p>
+ */
+public class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedExecutorService(ExecutorService delegate, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                if (command instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * @return number of tasks currently waiting for a permit
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
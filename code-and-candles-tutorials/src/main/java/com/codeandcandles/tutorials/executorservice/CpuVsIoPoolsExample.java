@@ -1,7 +1,9 @@
 package com.codeandcandles.tutorials.executorservice;
 
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Compares separate thread pools for CPU-bound and I/O-bound workloads to
@@ -13,7 +15,8 @@ import java.util.concurrent.Executors;
  * </p>
  * <ul>
  *     <li>a CPU-oriented pool sized to the number of available processors, and</li>
- *     <li>an I/O-oriented pool using {@link Executors#newCachedThreadPool()}.</li>
+ *     <li>an I/O-oriented pool using {@link Executors#newCachedThreadPool()}, or virtual
+ *         threads when started with the {@code virtual} argument (see {@link IoExecutorFactory}).</li>
  * </ul>
  *
  * <p>
@@ -44,22 +47,35 @@ import java.util.concurrent.Executors;
  * <pre>
  * mvn compile exec:java \
  *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.CpuVsIoPoolsExample"
+ *
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.CpuVsIoPoolsExample" \
+ *     -Dexec.args="virtual"
  * </pre>
  */
 public class CpuVsIoPoolsExample {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
 
         int cores = Runtime.getRuntime().availableProcessors();
 
         ExecutorService cpuPool = Executors.newFixedThreadPool(cores);
-        ExecutorService ioPool  = Executors.newCachedThreadPool();
+        ExecutorService ioPool  = ioExecutorFactory(args).create();
 
         cpuPool.submit(CpuVsIoPoolsExample::heavyComputation);
         ioPool.submit(CpuVsIoPoolsExample::remoteApiCall);
 
         cpuPool.shutdown();
         ioPool.shutdown();
+
+        // virtual threads are daemon threads: without this, the JVM would exit before the I/O finishes
+        ioPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static IoExecutorFactory ioExecutorFactory(String[] args) {
+        return args.length > 0
+                ? IoExecutorFactory.valueOf(args[0].toUpperCase(Locale.ROOT))
+                : IoExecutorFactory.CACHED;
     }
 
     private static void heavyComputation() {
@@ -0,0 +1,91 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import com.codeandcandles.tutorials.executorservice.DeadlineThreadPoolExecutor.Priority;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows a {@link DeadlineThreadPoolExecutor} putting a critical request ahead of queued bulk work,
+ * and dropping a request whose deadline passed while it waited.
+ *
+ * <p>
+ * A single worker gets six bulk tasks of 200 ms, then two requests:
+ * </p>
+ * <ul>
+ *     <li>a {@code CRITICAL} request with a 1 second budget: it runs right after the bulk task
+ *         already in progress, not after all six;</li>
+ *     <li>a {@code NORMAL} request with a 100 ms budget: it cannot start in time, so it never runs
+ *         and its future fails with a {@code TimeoutException}.</li>
+ * </ul>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * bulk-0 done
+ * critical request served after 199 ms
+ * normal request dropped: java.util.concurrent.TimeoutException: deadline passed before the task started (NORMAL, waited 201 ms)
+ * bulk-1 done
+ * ...
+ * bulk-5 done
+ * expired tasks: 1
+ * </pre>
+ *
+ * <p>
+ * With the FIFO queue of {@link CustomThreadPoolExample} the critical request would wait for all
+ * six bulk tasks, about 1.2 seconds.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.DeadlineSchedulingExample"
+ * </pre>
+ */
+public class DeadlineSchedulingExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        DeadlineThreadPoolExecutor executor = new DeadlineThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                100,                           // bounded queue
+                Duration.ofSeconds(5),         // aging interval
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        List<Future<?>> bulk = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final int taskId = i;
+            bulk.add(executor.submit(Priority.BULK, () -> {
+                Thread.sleep(200);
+                System.out.println("bulk-" + taskId + " done");
+                return null;
+            }));
+        }
+
+        long submitted = System.nanoTime();
+        Future<Long> critical = executor.submit(Priority.CRITICAL, Duration.ofSeconds(1),
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted));
+        Future<String> normal = executor.submit(Priority.NORMAL, Duration.ofMillis(100), () -> "served");
+
+        try {
+            System.out.println("critical request served after " + critical.get() + " ms");
+        } catch (ExecutionException e) {
+            System.out.println("critical request failed: " + e.getCause());
+        }
+        try {
+            System.out.println("normal request " + normal.get());
+        } catch (ExecutionException e) {
+            System.out.println("normal request dropped: " + e.getCause());
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        System.out.println("expired tasks: " + executor.getExpiredCount());
+    }
+}
@@ -0,0 +1,590 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ThreadPoolExecutor} whose queue is ordered by {@link Priority} class and then by absolute
+ * deadline (earliest deadline first), instead of FIFO.
+ *
+ * <p>
+ * In the FIFO examples a latency-critical request waits behind every bulk task that arrived
+ * before it. Here a worker always takes the most urgent task:
+ * </p>
+ * <ul>
+ *     <li><strong>priority</strong> – a {@code CRITICAL} task runs before any {@code NORMAL} one,
+ *         which runs before any {@code BULK} one.</li>
+ *     <li><strong>EDF</strong> – within a class, the task with the earliest deadline runs first.
+ *         Tasks without a deadline follow, in arrival order.</li>
+ *     <li><strong>aging</strong> – a task moves up one class for every {@code agingInterval} it has
+ *         waited, so a steady stream of critical work cannot starve bulk work forever. Every queued
+ *         task ages, not only the head of its class: the oldest task of each class competes next to
+ *         the most urgent one. Aging continues past {@code CRITICAL}, so a task without a deadline
+ *         also ends up ahead of newer tasks with deadlines in its own class.</li>
+ *     <li><strong>expiry</strong> – a task whose deadline has passed is never run. It is dropped
+ *         when a worker reaches it, and its future fails with a {@link TimeoutException}.</li>
+ * </ul>
+ *
+ * <p>
+ * The queue can be bounded. When it is full, the pool grows to {@code maximumPoolSize} and then
+ * applies the {@link RejectedExecutionHandler}, exactly as with the {@code ArrayBlockingQueue} in
+ * {@link CustomThreadPoolExample}.
+ * </p>
+ *
+ * <p>
+ * Every task is held as a {@code FutureTask}. For a task passed to one of the {@code execute()}
+ * methods nobody holds that future, so {@link #afterExecute(Runnable, Throwable)} takes the
+ * exception out of it and reports it to the worker thread's uncaught-exception handler, as a plain
+ * {@code ThreadPoolExecutor} would. Tasks dropped on expiry are only counted, not reported.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * Future&lt;Response&gt; f = executor.submit(Priority.CRITICAL, Duration.ofMillis(50), () -&gt; handle(request));
+ * executor.execute(Priority.BULK, () -&gt; reindex());
+ * </pre>
+ */
+public class DeadlineThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Priority classes, most urgent first.
+     */
+    public enum Priority {
+        CRITICAL,
+        NORMAL,
+        BULK
+    }
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param queueCapacity maximum number of queued tasks, or {@code Integer.MAX_VALUE} for unbounded
+     * @param agingInterval waiting time after which a queued task is promoted by one class
+     */
+    public DeadlineThreadPoolExecutor(int corePoolSize,
+                                      int maximumPoolSize,
+                                      long keepAliveTime,
+                                      TimeUnit unit,
+                                      int queueCapacity,
+                                      Duration agingInterval,
+                                      RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                new DeadlineQueue(queueCapacity, agingInterval.toNanos()), handler);
+    }
+
+    // ---------------------------------------------------------------------
+    // Submission
+    // ---------------------------------------------------------------------
+
+    /**
+     * Runs {@code task} with the given priority and no deadline.
+     */
+    public void execute(Priority priority, Runnable task) {
+        execute(unwatched(task, priority, NO_DEADLINE));
+    }
+
+    /**
+     * Runs {@code task} with the given priority, unless {@code budget} has elapsed before a worker
+     * gets to it.
+     */
+    public void execute(Priority priority, Duration budget, Runnable task) {
+        execute(unwatched(task, priority, deadlineAfter(budget)));
+    }
+
+    public <T> Future<T> submit(Priority priority, Callable<T> task) {
+        DeadlineTask<T> future = new DeadlineTask<>(task, priority, NO_DEADLINE);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * Submits {@code task} with a deadline of now plus {@code budget}. If no worker starts it in
+     * time, the returned future fails with a {@link TimeoutException} and the task never runs.
+     */
+    public <T> Future<T> submit(Priority priority, Duration budget, Callable<T> task) {
+        DeadlineTask<T> future = new DeadlineTask<>(task, priority, deadlineAfter(budget));
+        execute(future);
+        return future;
+    }
+
+    /**
+     * Plain {@code execute()} calls are treated as {@link Priority#NORMAL} without a deadline.
+     */
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        DeadlineTask<?> task = command instanceof DeadlineTask<?> d
+                ? d : unwatched(command, Priority.NORMAL, NO_DEADLINE);
+        task.enqueuedAt = System.nanoTime();
+        super.execute(task);
+    }
+
+    /**
+     * Wraps a task whose future nobody will look at, so its failure is reported on completion.
+     */
+    private DeadlineTask<Void> unwatched(Runnable task, Priority priority, long deadline) {
+        DeadlineTask<Void> wrapper = new DeadlineTask<>(Objects.requireNonNull(task), null, priority, deadline);
+        wrapper.reportFailure = true;
+        return wrapper;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (r instanceof DeadlineTask<?> task && task.reportFailure && !task.expiredUnstarted
+                && task.state() == Future.State.FAILED) {
+            Thread worker = Thread.currentThread();
+            worker.getUncaughtExceptionHandler().uncaughtException(worker, task.exceptionNow());
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new DeadlineTask<>(runnable, value, Priority.NORMAL, NO_DEADLINE);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new DeadlineTask<>(callable, Priority.NORMAL, NO_DEADLINE);
+    }
+
+    /**
+     * @return number of tasks dropped because their deadline passed before they started
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    private static long deadlineAfter(Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        return deadline == NO_DEADLINE ? NO_DEADLINE - 1 : deadline;
+    }
+
+    // ---------------------------------------------------------------------
+    // Task
+    // ---------------------------------------------------------------------
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final class DeadlineTask<V> extends FutureTask<V> {
+        final Priority priority;
+        final long deadline;
+        final long seq = SEQUENCE.getAndIncrement();
+        long enqueuedAt;
+        /** Set for tasks from {@code execute()}, whose future is not returned to the caller. */
+        boolean reportFailure;
+        volatile boolean expiredUnstarted;
+
+        DeadlineTask(Callable<V> callable, Priority priority, long deadline) {
+            super(callable);
+            this.priority = Objects.requireNonNull(priority);
+            this.deadline = deadline;
+        }
+
+        DeadlineTask(Runnable runnable, V result, Priority priority, long deadline) {
+            super(runnable, result);
+            this.priority = Objects.requireNonNull(priority);
+            this.deadline = deadline;
+        }
+
+        boolean isExpired(long now) {
+            return deadline != NO_DEADLINE && now - deadline > 0;
+        }
+
+        void expire() {
+            if (setExpired()) {
+                expired.increment();
+            }
+        }
+
+        private boolean setExpired() {
+            if (isDone()) {
+                return false;
+            }
+            expiredUnstarted = true;
+            setException(new TimeoutException("deadline passed before the task started ("
+                    + priority + ", waited " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt) + " ms)"));
+            return state() == State.FAILED;
+        }
+
+        @Override
+        public void run() {
+            // last check, for a task that expired between leaving the queue and reaching the worker
+            if (isExpired(System.nanoTime())) {
+                expire();
+                return;
+            }
+            super.run();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Queue
+    // ---------------------------------------------------------------------
+
+    /**
+     * Tasks of one priority class, kept in two orders: by deadline then arrival for EDF, and by
+     * arrival alone so the oldest task, the one aging promotes furthest, is found without a scan.
+     */
+    private static final class ClassQueue {
+        final TreeSet<DeadlineTask<?>> byUrgency = new TreeSet<>((a, b) -> {
+            int byDeadline = DeadlineQueue.compareDeadlines(a.deadline, b.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(a.seq, b.seq);
+        });
+        final TreeSet<DeadlineTask<?>> byArrival = new TreeSet<>(Comparator.comparingLong(task -> task.seq));
+
+        void add(DeadlineTask<?> task) {
+            byUrgency.add(task);
+            byArrival.add(task);
+        }
+
+        boolean remove(DeadlineTask<?> task) {
+            byArrival.remove(task);
+            return byUrgency.remove(task);
+        }
+
+        boolean isEmpty() {
+            return byUrgency.isEmpty();
+        }
+    }
+
+    /**
+     * One {@link ClassQueue} per priority class behind a single lock (the same locking as
+     * {@link java.util.concurrent.PriorityBlockingQueue}).
+     */
+    private static final class DeadlineQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+        private final int capacity;
+        private final long agingNanos;
+        private final ClassQueue[] classes;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private int count;
+
+        DeadlineQueue(int capacity, long agingNanos) {
+            if (capacity <= 0 || agingNanos <= 0) {
+                throw new IllegalArgumentException("capacity and agingInterval must be positive");
+            }
+            this.capacity = capacity;
+            this.agingNanos = agingNanos;
+            this.classes = new ClassQueue[Priority.values().length];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = new ClassQueue();
+            }
+        }
+
+        /** Deadlines are {@code nanoTime} values, so compare by difference; {@code NO_DEADLINE} sorts last. */
+        private static int compareDeadlines(long a, long b) {
+            if (a == b) {
+                return 0;
+            }
+            if (a == NO_DEADLINE) {
+                return 1;
+            }
+            if (b == NO_DEADLINE) {
+                return -1;
+            }
+            return Long.signum(a - b);
+        }
+
+        private static DeadlineTask<?> cast(Runnable r) {
+            if (r instanceof DeadlineTask<?> task) {
+                return task;
+            }
+            throw new IllegalArgumentException("DeadlineThreadPoolExecutor queue only accepts its own tasks: " + r);
+        }
+
+        @Override
+        public boolean offer(Runnable r) {
+            DeadlineTask<?> task = cast(r);
+            lock.lock();
+            try {
+                if (count >= capacity) {
+                    return false;
+                }
+                enqueue(task);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void put(Runnable r) throws InterruptedException {
+            DeadlineTask<?> task = cast(r);
+            lock.lockInterruptibly();
+            try {
+                while (count >= capacity) {
+                    notFull.await();
+                }
+                enqueue(task);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean offer(Runnable r, long timeout, TimeUnit unit) throws InterruptedException {
+            DeadlineTask<?> task = cast(r);
+            long nanos = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                while (count >= capacity) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                enqueue(task);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void enqueue(DeadlineTask<?> task) {
+            classes[task.priority.ordinal()].add(task);
+            count++;
+            notEmpty.signal();
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            return poll(true, 0);
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return poll(false, unit.toNanos(timeout));
+        }
+
+        @Override
+        public Runnable poll() {
+            List<DeadlineTask<?>> dropped = new ArrayList<>(0);
+            DeadlineTask<?> task;
+            lock.lock();
+            try {
+                task = dequeue(dropped);
+            } finally {
+                lock.unlock();
+            }
+            expireAll(dropped);
+            return task;
+        }
+
+        private Runnable poll(boolean untimed, long nanos) throws InterruptedException {
+            List<DeadlineTask<?>> dropped = new ArrayList<>(0);
+            DeadlineTask<?> task;
+            lock.lockInterruptibly();
+            try {
+                while ((task = dequeue(dropped)) == null) {
+                    if (untimed) {
+                        notEmpty.await();
+                    } else if (nanos <= 0) {
+                        break;
+                    } else {
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            expireAll(dropped);
+            return task;
+        }
+
+        /**
+         * Removes and returns the most urgent live task, moving expired candidates to
+         * {@code dropped}. Each class offers two candidates, its EDF head and its oldest task; any
+         * other task is younger than the oldest, so aging cannot rank it higher. Only candidates
+         * are checked for expiry; an expired task elsewhere is dropped once it becomes one, or by
+         * the check in {@link DeadlineTask#run()}.
+         */
+        private DeadlineTask<?> dequeue(List<DeadlineTask<?>> dropped) {
+            long now = System.nanoTime();
+            while (count > 0) {
+                DeadlineTask<?> best = null;
+                long bestClass = Long.MAX_VALUE;
+                for (ClassQueue queue : classes) {
+                    if (queue.isEmpty()) {
+                        continue;
+                    }
+                    for (int pick = 0; pick < 2; pick++) {
+                        DeadlineTask<?> candidate = pick == 0 ? queue.byUrgency.first() : queue.byArrival.first();
+                        long effectiveClass = candidate.priority.ordinal() - (now - candidate.enqueuedAt) / agingNanos;
+                        if (best == null || effectiveClass < bestClass
+                                || (effectiveClass == bestClass && isMoreUrgent(candidate, best))) {
+                            best = candidate;
+                            bestClass = effectiveClass;
+                        }
+                    }
+                }
+                classes[best.priority.ordinal()].remove(best);
+                count--;
+                notFull.signal();
+                if (best.isExpired(now)) {
+                    dropped.add(best);
+                    continue;
+                }
+                return best;
+            }
+            return null;
+        }
+
+        private static boolean isMoreUrgent(DeadlineTask<?> a, DeadlineTask<?> b) {
+            int byDeadline = compareDeadlines(a.deadline, b.deadline);
+            return byDeadline != 0 ? byDeadline < 0 : a.seq < b.seq;
+        }
+
+        private static void expireAll(List<DeadlineTask<?>> dropped) {
+            for (DeadlineTask<?> task : dropped) {
+                task.expire();
+            }
+        }
+
+        /**
+         * Head of the most urgent non-empty class, ignoring aging and expiry.
+         */
+        @Override
+        public Runnable peek() {
+            lock.lock();
+            try {
+                for (ClassQueue queue : classes) {
+                    if (!queue.isEmpty()) {
+                        return queue.byUrgency.first();
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof DeadlineTask<?> task)) {
+                return false;
+            }
+            lock.lock();
+            try {
+                boolean removed = classes[task.priority.ordinal()].remove(task);
+                if (removed) {
+                    count--;
+                    notFull.signal();
+                }
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return capacity == Integer.MAX_VALUE ? Integer.MAX_VALUE : capacity - size();
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            Objects.requireNonNull(c);
+            if (c == this) {
+                throw new IllegalArgumentException();
+            }
+            lock.lock();
+            try {
+                int n = 0;
+                for (ClassQueue queue : classes) {
+                    while (n < maxElements && !queue.isEmpty()) {
+                        DeadlineTask<?> task = queue.byUrgency.pollFirst();
+                        queue.byArrival.remove(task);
+                        c.add(task);
+                        count--;
+                        n++;
+                    }
+                }
+                if (n > 0) {
+                    notFull.signalAll();
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Snapshot iterator, most urgent class first. {@code remove()} removes from the queue.
+         */
+        @Override
+        public Iterator<Runnable> iterator() {
+            List<Runnable> snapshot = new ArrayList<>();
+            lock.lock();
+            try {
+                for (ClassQueue queue : classes) {
+                    snapshot.addAll(queue.byUrgency);
+                }
+            } finally {
+                lock.unlock();
+            }
+            Iterator<Runnable> it = snapshot.iterator();
+            return new Iterator<>() {
+                private Runnable last;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    return last = it.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    DeadlineQueue.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+    }
+}
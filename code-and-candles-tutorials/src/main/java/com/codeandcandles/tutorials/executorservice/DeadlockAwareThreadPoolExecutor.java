@@ -0,0 +1,321 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ThreadPoolExecutor} that detects a worker blocking on a {@link Future} of a task that is
+ * still waiting in the <em>same</em> pool's queue, and resolves the wait instead of hanging.
+ *
+ * <p>
+ * This is the situation in {@link DeadlockExample}: the only worker runs the outer task, which
+ * calls {@code inner.get()}, while the inner task sits in the queue behind it. Neither can make
+ * progress. With a larger pool the same thing happens as soon as every worker is blocked this way.
+ * </p>
+ *
+ * <p>
+ * Every future returned by {@code submit()} records whether it has started, and which worker is
+ * blocked on it ({@link #getBlockedWorkers()}). When a worker of this pool calls {@code get()} on a
+ * future that has not started yet, while tasks are queued and no other worker is free to take
+ * them, the pool applies a {@link SelfWaitPolicy}:
+ * </p>
+ * <ul>
+ *     <li>{@link SelfWaitPolicy#RUN_INLINE} – remove the task from the queue and run it on the
+ *         waiting thread, like {@code ForkJoinTask.join()} helping.</li>
+ *     <li>{@link SelfWaitPolicy#COMPENSATE} – raise the pool size by one for the duration of the wait,
+ *         so a fresh worker can pick the task up, like {@code ForkJoinPool.managedBlock()}.</li>
+ * </ul>
+ *
+ * <p>
+ * Each detection is reported to the listener as a {@link SelfWaitEvent}, so the pattern shows up in
+ * logs instead of as a silent outage. {@link DeadlockRecoveryExample} runs the
+ * {@code DeadlockExample} scenario with both policies.
+ * </p>
+ *
+ * <p>
+ * {@code COMPENSATE} changes the core and maximum pool size while a wait is in progress. Do not
+ * resize the pool from outside at the same time.
+ * </p>
+ */
+public class DeadlockAwareThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * What to do when a worker waits on a task that is still queued in its own pool.
+     */
+    public enum SelfWaitPolicy {
+        RUN_INLINE,
+        COMPENSATE
+    }
+
+    /**
+     * Diagnostic event describing one detected self-wait.
+     *
+     * @param worker      name of the blocked worker thread
+     * @param task        {@code toString()} of the awaited task
+     * @param action      policy applied to resolve the wait
+     * @param poolSize    pool size at detection time
+     * @param activeCount number of workers running tasks at detection time
+     * @param queuedTasks queue length at detection time
+     */
+    public record SelfWaitEvent(String worker, String task, SelfWaitPolicy action,
+                                int poolSize, int activeCount, int queuedTasks) {
+    }
+
+    private final ThreadLocal<Boolean> poolThread = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final Map<Thread, Future<?>> blockedWorkers = new ConcurrentHashMap<>();
+    private final SelfWaitPolicy policy;
+    private final Consumer<SelfWaitEvent> listener;
+
+    private final Object sizeLock = new Object();
+    private int compensations;
+    private int baseCorePoolSize;
+    private int baseMaximumPoolSize;
+
+    /**
+     * @param policy   how detected self-waits are resolved
+     * @param listener receives one event per detection; must not block
+     */
+    public DeadlockAwareThreadPoolExecutor(int corePoolSize,
+                                           int maximumPoolSize,
+                                           long keepAliveTime,
+                                           TimeUnit unit,
+                                           BlockingQueue<Runnable> workQueue,
+                                           SelfWaitPolicy policy,
+                                           Consumer<SelfWaitEvent> listener) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+        this.policy = Objects.requireNonNull(policy);
+        this.listener = Objects.requireNonNull(listener);
+        this.baseCorePoolSize = corePoolSize;
+        this.baseMaximumPoolSize = maximumPoolSize;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TrackedFuture<>(callable(runnable, value));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TrackedFuture<>(callable);
+    }
+
+    /**
+     * {@link java.util.concurrent.Executors#callable(Runnable, Object)} that keeps the task's
+     * {@code toString()}, so the diagnostic event names something recognisable.
+     */
+    private static <T> Callable<T> callable(Runnable task, T result) {
+        Objects.requireNonNull(task);
+        return new Callable<>() {
+            @Override
+            public T call() {
+                task.run();
+                return result;
+            }
+
+            @Override
+            public String toString() {
+                return task.toString();
+            }
+        };
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        poolThread.set(Boolean.TRUE);
+        super.beforeExecute(t, r);
+    }
+
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        synchronized (sizeLock) {
+            if (compensations == 0) {
+                baseCorePoolSize = corePoolSize;
+            }
+            super.setCorePoolSize(corePoolSize);
+        }
+    }
+
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        synchronized (sizeLock) {
+            if (compensations == 0) {
+                baseMaximumPoolSize = maximumPoolSize;
+            }
+            super.setMaximumPoolSize(maximumPoolSize);
+        }
+    }
+
+    /**
+     * @return snapshot of the workers currently blocked in {@code get()}, and what they wait on
+     */
+    public Map<Thread, Future<?>> getBlockedWorkers() {
+        return Map.copyOf(blockedWorkers);
+    }
+
+    // ---------------------------------------------------------------------
+    // Self-wait handling
+    // ---------------------------------------------------------------------
+
+    /**
+     * Called by a {@link TrackedFuture} before its caller blocks.
+     *
+     * @return {@code true} if the pool was grown and must be shrunk again after the wait
+     */
+    private boolean beforeWait(TrackedFuture<?> future) {
+        if (!isSelfWait(future)) {
+            return false;
+        }
+
+        listener.accept(new SelfWaitEvent(
+                Thread.currentThread().getName(),
+                future.toString(),
+                policy,
+                getPoolSize(),
+                getActiveCount(),
+                getQueue().size()
+        ));
+
+        if (policy == SelfWaitPolicy.RUN_INLINE) {
+            remove(future);
+            future.run();
+            return false;
+        }
+
+        synchronized (sizeLock) {
+            compensations++;
+            int core = baseCorePoolSize + compensations;
+            if (core > getMaximumPoolSize()) {
+                super.setMaximumPoolSize(core);
+            }
+            super.setCorePoolSize(core); // starts a worker for the queued task
+        }
+        return true;
+    }
+
+    /**
+     * A worker that has just finished a task still counts as active until it unlocks, so a wait
+     * that looks stuck is checked a second time after yielding once.
+     */
+    private boolean isSelfWait(TrackedFuture<?> future) {
+        if (!looksStuck(future)) {
+            return false;
+        }
+        Thread.yield();
+        return looksStuck(future);
+    }
+
+    private boolean looksStuck(TrackedFuture<?> future) {
+        // started: running on another worker, which makes progress on its own. Not queued: a new
+        // worker is about to start it. A worker idle: it will take the task. Room below the
+        // maximum pool size does not help, a queued task never starts a new worker.
+        return !future.isStarted() && !getQueue().isEmpty() && getActiveCount() >= getPoolSize();
+    }
+
+    private void afterWait(boolean compensated) {
+        if (!compensated) {
+            return;
+        }
+        synchronized (sizeLock) {
+            compensations--;
+            int core = baseCorePoolSize + compensations;
+            super.setCorePoolSize(core);
+            super.setMaximumPoolSize(Math.max(core, baseMaximumPoolSize));
+        }
+    }
+
+    /**
+     * A worker running a task inline may itself wait again: keep the outer wait visible afterwards.
+     */
+    private void restoreBlocked(Thread worker, Future<?> outer) {
+        if (outer == null) {
+            blockedWorkers.remove(worker);
+        } else {
+            blockedWorkers.put(worker, outer);
+        }
+    }
+
+    /**
+     * {@link FutureTask} that knows whether it has started and routes blocking {@code get()}
+     * calls from pool workers through the self-wait check.
+     */
+    private final class TrackedFuture<V> extends FutureTask<V> {
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final String description;
+
+        TrackedFuture(Callable<V> callable) {
+            super(callable);
+            this.description = callable.toString();
+        }
+
+        boolean isStarted() {
+            return started.get();
+        }
+
+        @Override
+        public void run() {
+            // claim first: a task run inline by a waiter must not run again when dequeued
+            if (started.compareAndSet(false, true)) {
+                super.run();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                started.set(true);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            if (isDone() || !poolThread.get()) {
+                return super.get();
+            }
+            Thread me = Thread.currentThread();
+            Future<?> outer = blockedWorkers.put(me, this);
+            boolean compensated = beforeWait(this);
+            try {
+                return super.get();
+            } finally {
+                restoreBlocked(me, outer);
+                afterWait(compensated);
+            }
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (isDone() || !poolThread.get()) {
+                return super.get(timeout, unit);
+            }
+            Thread me = Thread.currentThread();
+            Future<?> outer = blockedWorkers.put(me, this);
+            boolean compensated = beforeWait(this);
+            try {
+                return super.get(timeout, unit);
+            } finally {
+                restoreBlocked(me, outer);
+                afterWait(compensated);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -46,7 +46,9 @@ import java.util.concurrent.*;
  * <ul>
  *     <li>Use a larger pool (so nested tasks can still get threads), or</li>
  *     <li>Avoid calling {@code get()} from within tasks and use asynchronous
- *         composition APIs such as {@link java.util.concurrent.CompletableFuture}.</li>
+ *         composition APIs such as {@link java.util.concurrent.CompletableFuture}, or</li>
+ *     <li>Use a {@link DeadlockAwareThreadPoolExecutor}, which detects the self-wait and
+ *         resolves it (see {@link DeadlockRecoveryExample}).</li>
  * </ul>
  */
 public class DeadlockExample {
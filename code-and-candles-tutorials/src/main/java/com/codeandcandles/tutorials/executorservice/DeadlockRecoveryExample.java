@@ -0,0 +1,80 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import com.codeandcandles.tutorials.executorservice.DeadlockAwareThreadPoolExecutor.SelfWaitPolicy;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the exact scenario from {@link DeadlockExample} on a {@link DeadlockAwareThreadPoolExecutor},
+ * once per {@link SelfWaitPolicy}.
+ *
+ * <p>
+ * As before, a single-threaded pool runs an outer task that submits an inner task to the same
+ * pool and blocks on {@code inner.get()}. This time the pool notices that the worker is waiting on
+ * a task stuck in its own queue, emits a diagnostic event, and resolves the wait:
+ * </p>
+ * <ul>
+ *     <li>{@code RUN_INLINE} runs the inner task on the outer task's thread.</li>
+ *     <li>{@code COMPENSATE} starts a temporary second worker for the inner task.</li>
+ * </ul>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * --- RUN_INLINE ---
+ * Outer task running on pool-1-thread-1
+ * [self-wait] SelfWaitEvent[worker=pool-1-thread-1, task=...$$Lambda/0x...@1b6d3586, action=RUN_INLINE, poolSize=1, activeCount=1, queuedTasks=1]
+ * Inner task running on pool-1-thread-1
+ * Result: 10
+ * --- COMPENSATE ---
+ * Outer task running on pool-2-thread-1
+ * [self-wait] SelfWaitEvent[worker=pool-2-thread-1, task=...$$Lambda/0x...@4554617c, action=COMPENSATE, poolSize=1, activeCount=1, queuedTasks=1]
+ * Inner task running on pool-2-thread-2
+ * Result: 10
+ * </pre>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.DeadlockRecoveryExample"
+ * </pre>
+ */
+public class DeadlockRecoveryExample {
+
+    public static void main(String[] args) throws Exception {
+        for (SelfWaitPolicy policy : SelfWaitPolicy.values()) {
+            System.out.println("--- " + policy + " ---");
+            run(policy);
+        }
+    }
+
+    private static void run(SelfWaitPolicy policy) throws Exception {
+
+        DeadlockAwareThreadPoolExecutor pool = new DeadlockAwareThreadPoolExecutor(
+                1, 1,                          // same as Executors.newFixedThreadPool(1)
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                policy,
+                event -> System.out.println("[self-wait] " + event)
+        );
+
+        Future<Integer> outer = pool.submit(() -> {
+            System.out.println("Outer task running on " + Thread.currentThread().getName());
+
+            Future<Integer> inner = pool.submit(() -> {
+                System.out.println("Inner task running on " + Thread.currentThread().getName());
+                return 10;
+            });
+
+            // would deadlock on a plain pool: the pool resolves it instead
+            return inner.get();
+        });
+
+        try {
+            System.out.println("Result: " + outer.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Probabilistic early rejection from the queue fill ratio, after RED (random early detection).
+ *
+ * <p>
+ * Below {@code minFill} every task is admitted. Between {@code minFill} and {@code maxFill} a task
+ * is refused with a probability that rises linearly from 0 to 1. At {@code maxFill} and above
+ * everything is refused. Refused tasks are rejected at once.
+ * </p>
+ *
+ * <p>
+ * Compared with a hard limit, rejections start gently while the queue still has room, so callers
+ * see a rising error rate instead of a cliff. The queue rarely fills up completely, which keeps
+ * queue wait bounded by roughly {@code maxFill * capacity} task durations divided by the pool size.
+ * </p>
+ */
+public class EarlyRejectionPolicy extends OverloadPolicy {
+
+    private final double minFill;
+    private final double maxFill;
+    private volatile double lastProbability;
+
+    /**
+     * @param minFill fill ratio in {@code [0, 1)} at which rejections start
+     * @param maxFill fill ratio in {@code (minFill, 1]} at which every task is refused
+     */
+    public EarlyRejectionPolicy(double minFill, double maxFill) {
+        if (minFill < 0 || maxFill > 1 || minFill >= maxFill) {
+            throw new IllegalArgumentException("need 0 <= minFill < maxFill <= 1");
+        }
+        this.minFill = minFill;
+        this.maxFill = maxFill;
+    }
+
+    @Override
+    protected boolean shouldAdmit(int queued, int capacity) {
+        double fill = (double) queued / capacity;
+        if (fill < minFill) {
+            return true;
+        }
+        double p = Math.min(1.0, (fill - minFill) / (maxFill - minFill));
+        lastProbability = p;
+        return ThreadLocalRandom.current().nextDouble() >= p;
+    }
+
+    /**
+     * @return rejection probability computed for the last submission that reached the early
+     * rejection range
+     */
+    public double getLastRejectProbability() {
+        return lastProbability;
+    }
+
+    @Override
+    protected String details() {
+        return String.format(", lastRejectProbability=%.2f", getLastRejectProbability());
+    }
+}
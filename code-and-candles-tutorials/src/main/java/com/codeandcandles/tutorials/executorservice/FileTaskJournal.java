@@ -0,0 +1,130 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link PendingTaskSink} that appends pending tasks to a local file, one line per task, and reads
+ * them back on the next start.
+ *
+ * <p>
+ * A {@link Runnable} cannot be written to disk as such, so only tasks that implement
+ * {@link Journaled} are persisted: they describe themselves as a short text entry, and the
+ * application turns the entry back into a task when it replays the journal. Other tasks are
+ * skipped and show up as lost in the {@link ShutdownCoordinator.Report}.
+ * </p>
+ *
+ * <p>
+ * The tasks must reach the executor through {@code execute()}. {@code submit()} wraps them in a
+ * {@code FutureTask}, and {@code shutdownNow()} returns that wrapper, not the original task.
+ * </p>
+ *
+ * <p>
+ * Each {@link #persist} call is written with a single channel write and forced to disk before it
+ * returns, so a crash right after shutdown does not lose the entries.
+ * </p>
+ */
+public class FileTaskJournal implements PendingTaskSink {
+
+    /**
+     * A task that can be written to the journal and rebuilt from the entry later.
+     */
+    public interface Journaled extends Runnable {
+
+        /**
+         * A single-line description of the task, e.g. {@code "send-email:42"}.
+         */
+        String journalEntry();
+    }
+
+    /**
+     * One journal line: the pool the task was queued on, and its entry.
+     */
+    public record Entry(String pool, String task) {
+    }
+
+    private final Path file;
+
+    public FileTaskJournal(Path file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    @Override
+    public synchronized int persist(String pool, List<Runnable> tasks) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        int persisted = 0;
+        for (Runnable task : tasks) {
+            if (task instanceof Journaled journaled) {
+                lines.append(escape(pool)).append('\t').append(escape(journaled.journalEntry())).append('\n');
+                persisted++;
+            }
+        }
+        if (persisted == 0) {
+            return 0;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        return persisted;
+    }
+
+    /**
+     * Reads all entries in the order they were written. Returns an empty list if there is no journal.
+     */
+    public synchronized List<Entry> readAll() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue; // torn write at the end of the file
+                }
+                entries.add(new Entry(unescape(line.substring(0, tab)), unescape(line.substring(tab + 1))));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Deletes the journal, typically once its entries have been resubmitted.
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
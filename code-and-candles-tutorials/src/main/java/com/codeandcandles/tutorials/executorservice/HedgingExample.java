@@ -0,0 +1,97 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures a {@link HedgingExecutor} against a {@link SimulatedBackend} whose latency is 5 ms for
+ * 97% of calls and 200 ms for the other 3%: the shape of a service with occasional GC pauses.
+ *
+ * <p>
+ * The same 2 000 calls, 20 at a time, are run twice on a virtual-thread I/O pool
+ * ({@link IoExecutorFactory#VIRTUAL}): once directly, once hedged with a 5% budget. The hedged
+ * run's p99 drops from the slow mode to about twice the fast mode, for a few percent of extra
+ * backend calls.
+ * </p>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * direct : p50=5ms p99=201ms max=202ms backendCalls=2000
+ * hedged : p50=5ms p99=11ms max=200ms backendCalls=2080
+ *          calls=4000 hedges=187 (4.7% extra load) hedgeWins=110 budgetDenied=192 hedgeDelay=5.7ms
+ * </pre>
+ *
+ * <p>
+ * The executor's counters include the warm-up pass. {@code budgetDenied} shows the budget at work:
+ * with 3% slow calls and a p95 delay, slightly more than 5% of calls want a hedge.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.HedgingExample"
+ * </pre>
+ */
+public class HedgingExample {
+
+    private static final int CALLS = 2000;
+    private static final int CONCURRENCY = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        SimulatedBackend.LatencyDistribution latency = SimulatedBackend.LatencyDistribution.bimodal(5, 200, 0.03);
+
+        try (ExecutorService ioPool = IoExecutorFactory.VIRTUAL.create()) {
+
+            SimulatedBackend direct = new SimulatedBackend(latency);
+            LatencyHistogram.Snapshot directLatency = run(task -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, ioPool), direct);
+            print("direct", directLatency, direct);
+
+            SimulatedBackend hedgedBackend = new SimulatedBackend(latency);
+            try (HedgingExecutor hedging = new HedgingExecutor(
+                    ioPool, 5.0, Duration.ofMillis(50), Duration.ofMillis(1))) {
+                run(hedging::submit, hedgedBackend); // warm-up: learn the p95
+                hedgedBackend = new SimulatedBackend(latency);
+                LatencyHistogram.Snapshot hedgedLatency = run(hedging::submit, hedgedBackend);
+                print("hedged", hedgedLatency, hedgedBackend);
+                System.out.println("         " + hedging);
+            }
+        }
+    }
+
+    private static LatencyHistogram.Snapshot run(Function<Callable<Integer>, CompletableFuture<Integer>> caller,
+                                                 SimulatedBackend backend) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int sent = 0; sent < CALLS; sent += CONCURRENCY) {
+            List<CompletableFuture<Integer>> wave = new ArrayList<>(CONCURRENCY);
+            for (int i = 0; i < CONCURRENCY; i++) {
+                int request = sent + i;
+                long start = System.nanoTime();
+                wave.add(caller.apply(() -> backend.call(request))
+                        .whenComplete((r, e) -> histogram.record(System.nanoTime() - start)));
+            }
+            wave.forEach(CompletableFuture::join);
+        }
+        return histogram.snapshot();
+    }
+
+    private static void print(String name, LatencyHistogram.Snapshot latency, SimulatedBackend backend) {
+        System.out.printf("%-7s: p50=%dms p99=%dms max=%dms backendCalls=%d%n", name,
+                TimeUnit.NANOSECONDS.toMillis(latency.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMillis(latency.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMillis(latency.getMax()),
+                backend.getCallCount());
+    }
+}
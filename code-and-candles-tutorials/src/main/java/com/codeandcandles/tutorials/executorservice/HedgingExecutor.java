@@ -0,0 +1,342 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs idempotent I/O calls with a hedge: if a call has not answered by the observed p95 latency,
+ * a second copy is sent, the first answer wins and the other copy is cancelled.
+ *
+ * <p>
+ * A downstream call like {@code CpuVsIoPoolsExample.remoteApiCall()} is usually fast, with a slow
+ * tail caused by GC pauses, cold caches or one bad replica. Waiting for the p95 before hedging
+ * means only about one request in twenty sends a second copy, yet the p99 drops to roughly the
+ * p95 plus one typical call.
+ * </p>
+ *
+ * <ul>
+ *     <li><strong>hedge delay</strong> – the p95 of the last {@value #SAMPLE_CAPACITY} successful
+ *         calls, recomputed every 100 ms and never below {@code minHedgeDelay}. Until enough
+ *         samples exist, {@code initialHedgeDelay} is used. Each call is sampled once, from
+ *         {@code submit} until its result completes; sampling attempts instead would leave out the
+ *         slow primaries that lost to a hedge, which are exactly the tail.</li>
+ *     <li><strong>budget</strong> – a token bucket: every call credits {@code budgetPercent / 100}
+ *         of a hedge, and a hedge spends one. The bucket holds at most {@value #BURST_HEDGES}, so a
+ *         long healthy period cannot bank allowance. When the backend slows down as a whole, every
+ *         call hits the hedge delay, and after the burst hedges are limited to
+ *         {@code budgetPercent} of the calls instead of doubling its load.</li>
+ *     <li><strong>result</strong> – the first attempt to succeed completes the future. If the first
+ *         attempt to finish fails, the call waits for the other one; it only fails if both fail.</li>
+ * </ul>
+ *
+ * <p>
+ * Only use it for calls that are safe to run twice. The losing attempt is cancelled with an
+ * interrupt, so it should react to interruption.
+ * </p>
+ */
+public class HedgingExecutor implements AutoCloseable {
+
+    private static final int SAMPLE_CAPACITY = 1024;            // power of two
+    private static final int MIN_SAMPLES = 50;
+    private static final long BURST_HEDGES = 10;
+    private static final long MICROS_PER_HEDGE = 1_000_000;     // budget tokens are fixed-point
+
+    private final ExecutorService pool;
+    private final long creditPerCall;
+    private final long minHedgeDelayNanos;
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_CAPACITY);
+    private final AtomicLong sampleCursor = new AtomicLong();
+    private final long[] scratch = new long[SAMPLE_CAPACITY];
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong budget = new AtomicLong(BURST_HEDGES * MICROS_PER_HEDGE);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+
+    /**
+     * @param pool              I/O pool that runs every attempt
+     * @param budgetPercent     maximum extra attempts as a percentage of calls, e.g. {@code 5}
+     * @param initialHedgeDelay hedge delay used until enough latencies have been observed
+     * @param minHedgeDelay     lower bound for the hedge delay
+     */
+    public HedgingExecutor(ExecutorService pool, double budgetPercent, Duration initialHedgeDelay, Duration minHedgeDelay) {
+        if (budgetPercent < 0 || budgetPercent > 100) {
+            throw new IllegalArgumentException("budgetPercent must be in [0, 100]");
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.creditPerCall = Math.round(budgetPercent / 100.0 * MICROS_PER_HEDGE);
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.hedgeDelayNanos = Math.max(minHedgeDelayNanos, initialHedgeDelay.toNanos());
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hedging-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::updateHedgeDelay, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Calls {@code task}, hedged. The task must be idempotent.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        Objects.requireNonNull(task);
+        calls.increment();
+        creditBudget();
+        long start = System.nanoTime();
+        Call<T> call = new Call<>(task);
+        call.startPrimary();
+        if (!call.result.isDone()) {
+            call.hedgeTimer = timer.schedule(call::hedge, hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        }
+        call.result.whenComplete((value, error) -> {
+            if (error == null) {
+                record(System.nanoTime() - start);
+            }
+            call.cancelLosers();
+        });
+        return call.result;
+    }
+
+    /**
+     * Stops the hedge timer. The pool is left to its owner.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return second attempts sent
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return calls answered by the second attempt
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return hedges skipped because the budget was used up
+     */
+    public long getBudgetDeniedCount() {
+        return budgetDenied.sum();
+    }
+
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    @Override
+    public String toString() {
+        long callCount = getCallCount();
+        return String.format("calls=%d hedges=%d (%.1f%% extra load) hedgeWins=%d budgetDenied=%d hedgeDelay=%.1fms",
+                callCount, getHedgeCount(), callCount == 0 ? 0.0 : 100.0 * getHedgeCount() / callCount,
+                getHedgeWinCount(), getBudgetDeniedCount(), getHedgeDelayNanos() / 1_000_000.0);
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private void creditBudget() {
+        long cap = BURST_HEDGES * MICROS_PER_HEDGE;
+        long current;
+        do {
+            current = budget.get();
+            if (current >= cap) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(cap, current + creditPerCall)));
+    }
+
+    private boolean tryAcquireHedge() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < MICROS_PER_HEDGE) {
+                budgetDenied.increment();
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - MICROS_PER_HEDGE));
+        hedges.increment();
+        return true;
+    }
+
+    private void record(long latencyNanos) {
+        long slot = sampleCursor.getAndIncrement();
+        samples.set((int) (slot & (SAMPLE_CAPACITY - 1)), latencyNanos);
+    }
+
+    /** Runs on the timer thread only, so {@code scratch} needs no lock. */
+    private void updateHedgeDelay() {
+        int count = (int) Math.min(sampleCursor.get(), SAMPLE_CAPACITY);
+        if (count < MIN_SAMPLES) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            scratch[i] = samples.get(i);
+        }
+        Arrays.sort(scratch, 0, count);
+        long p95 = scratch[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+        hedgeDelayNanos = Math.max(minHedgeDelayNanos, p95);
+    }
+
+    /**
+     * One hedged call. The attempt counters are guarded by {@code this}; contention is limited to
+     * the two attempts and the timer of a single call.
+     */
+    private final class Call<T> {
+        static final int PRIMARY = 1;
+        static final int HEDGE = 2;
+
+        final Callable<T> task;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile Future<?> primary;
+        volatile Future<?> secondary;
+        volatile ScheduledFuture<?> hedgeTimer;
+        /** {@code 0} until an attempt succeeds first, then {@link #PRIMARY} or {@link #HEDGE}. */
+        final AtomicInteger winner = new AtomicInteger();
+
+        private int launched;
+        private int failed;
+        private boolean hedgeDecided;
+        private Throwable firstError;
+
+        Call(Callable<T> task) {
+            this.task = task;
+        }
+
+        void startPrimary() {
+            synchronized (this) {
+                launched++;
+            }
+            launch(false);
+        }
+
+        /** Timer path: the primary is still running at the hedge delay. */
+        void hedge() {
+            synchronized (this) {
+                if (hedgeDecided || result.isDone()) {
+                    return;
+                }
+                hedgeDecided = true;
+                if (!tryAcquireHedge()) {
+                    return;
+                }
+                launched++;
+            }
+            launch(true);
+        }
+
+        private void launch(boolean isHedge) {
+            try {
+                Future<?> attempt = pool.submit(() -> attempt(isHedge));
+                if (isHedge) {
+                    secondary = attempt;
+                } else {
+                    primary = attempt;
+                }
+                if (result.isDone()) {
+                    attempt.cancel(true);
+                }
+            } catch (RejectedExecutionException e) {
+                onFailure(e);
+            }
+        }
+
+        private void attempt(boolean isHedge) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                T value = task.call();
+                // claim the win before completing: whenComplete runs inside complete() and must
+                // not cancel, and so interrupt, the attempt that is completing it
+                if (winner.compareAndSet(0, isHedge ? HEDGE : PRIMARY) && result.complete(value) && isHedge) {
+                    hedgeWins.increment();
+                }
+            } catch (Throwable t) {
+                onFailure(t);
+            }
+        }
+
+        /**
+         * Fails the call once every launched attempt has failed. If the primary fails before the
+         * hedge delay, the copy is sent at once instead of waiting for the timer.
+         */
+        private void onFailure(Throwable error) {
+            boolean launchHedge = false;
+            boolean fail = false;
+            synchronized (this) {
+                failed++;
+                if (firstError == null) {
+                    firstError = error;
+                }
+                if (failed == launched) {
+                    if (!hedgeDecided && tryAcquireHedge()) {
+                        launched++;
+                        launchHedge = true;
+                    } else {
+                        fail = true;
+                    }
+                    hedgeDecided = true;
+                }
+            }
+            if (launchHedge) {
+                launch(true);
+            } else if (fail) {
+                result.completeExceptionally(firstError);
+            }
+        }
+
+        /**
+         * Stops the hedge timer and cancels every attempt except the winner. When no attempt won,
+         * because both failed or the caller cancelled the future, both are cancelled.
+         */
+        void cancelLosers() {
+            ScheduledFuture<?> pending = hedgeTimer;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            int won = winner.get();
+            Future<?> first = primary;
+            Future<?> second = secondary;
+            if (first != null && won != PRIMARY) {
+                first.cancel(true);
+            }
+            if (second != null && won != HEDGE) {
+                second.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link CustomThreadPoolExample} workload on an {@link InstrumentedThreadPoolExecutor},
+ * so the moment {@code CallerRunsPolicy} starts pushing work back onto the caller shows up as a
+ * number instead of a {@code main} thread name in the log.
+ *
+ * <p>
+ * Same configuration: two core threads, four max, a bounded queue of two and
+ * {@code CallerRunsPolicy}. Ten tasks of 500 ms are submitted; the pool is also registered over JMX
+ * and can be watched in JConsole while the example runs.
+ * </p>
+ *
+ * <p><strong>Sample Output (simplified):</strong></p>
+ * <pre>
+ * Task 7 executed by main
+ * Task 8 executed by main
+ * ...
+ * pool=0 active=0 queue=0 (peak 4) submitted=10 completed=8 failed=0 rejected=2 callerRuns=2
+ *   queueWait[ns] count=8 mean=128945325 p50=1966079 p99=511129103 p999=511129103 max=511129103
+ *   runTime[ns]   count=8 mean=504636309 p50=503316479 p99=511380794 p999=511380794 max=511380794
+ * </pre>
+ *
+ * <p>
+ * Two of the ten tasks ran on {@code main}: they count as rejected and as caller-runs, and since
+ * they never went through the pool they are not in the histograms. The queue-wait p50 is tiny
+ * because most tasks started a thread directly; the tail is the two tasks that sat in the queue
+ * behind a 500 ms task. The peak counts tasks submitted but not yet started, so it includes the
+ * ones handed straight to a new thread as well as the two that queued.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.InstrumentedThreadPoolExample"
+ * </pre>
+ */
+public class InstrumentedThreadPoolExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+                2,                             // corePoolSize
+                4,                             // maximumPoolSize
+                30, TimeUnit.SECONDS,          // keepAliveTime for extra threads
+                new ArrayBlockingQueue<>(2),   // bounded queue
+                new ThreadPoolExecutor.CallerRunsPolicy() // backpressure
+        );
+        executor.registerMBean("custom-pool");
+
+        for (int i = 1; i <= 10; i++) {
+            final int taskId = i;
+            executor.execute(() -> {
+                System.out.println("Task " + taskId + " executed by " + Thread.currentThread().getName());
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.println(executor.snapshot());
+    }
+}
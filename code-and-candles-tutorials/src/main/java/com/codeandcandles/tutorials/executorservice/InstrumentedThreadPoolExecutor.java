@@ -0,0 +1,487 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ThreadPoolExecutor} that records what the {@code executorservice} examples can only
+ * {@code println}: queue depth, queue wait, run time, completions, rejections, and how often
+ * {@link java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy} pushed work back onto the caller.
+ *
+ * <p><strong>What is recorded:</strong></p>
+ * <ul>
+ *     <li>queue-wait and run-time {@link LatencyHistogram}s, in nanoseconds</li>
+ *     <li>completed, failed and rejected task counts, and caller-runs executions</li>
+ *     <li>the peak number of tasks waiting: submitted but not yet started</li>
+ *     <li>live gauges: pool size, active count, current queue depth</li>
+ * </ul>
+ *
+ * <p>
+ * Counters are {@link LongAdder}s and the histograms are preallocated, so recording never allocates
+ * and never locks. The timestamps are fields of the task object itself. For {@code submit()} and
+ * {@code invokeAll()} that object is the {@link FutureTask} the executor creates anyway, so they
+ * cost nothing extra. A plain {@link Runnable} passed to {@link #execute(Runnable)} has nowhere to
+ * carry them, so it is wrapped in one object. The waiting count behind the peak is kept by the
+ * executor rather than read from the queue, whose {@code size()} takes the queue's lock. A task can
+ * leave the queue by more than one path at once (when {@code execute} races {@code shutdown},
+ * {@code ThreadPoolExecutor} removes it and then rejects it), so each task carries a flag that only
+ * the first path clears, and only that path lowers the count.
+ * </p>
+ *
+ * <p>
+ * Read the data with {@link #snapshot()}, or over JMX after {@link #registerMBean(String)}
+ * (for example with JConsole, under {@code com.codeandcandles.executors}).
+ * </p>
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong peakWaiting = new AtomicLong();
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+                new CountingHandler(Objects.requireNonNull(handler)));
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, new AbortPolicy());
+    }
+
+    // ---------------------------------------------------------------------
+    // Recording
+    // ---------------------------------------------------------------------
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TimedFutureTask<>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TimedFutureTask<>(callable);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        Timed timed = command instanceof Timed t ? t : new TimedRunnable(command);
+        timed.setEnqueuedAt(System.nanoTime());
+        submitted.increment();
+        long now = waiting.incrementAndGet();
+        if (now > peakWaiting.get()) {
+            peakWaiting.accumulateAndGet(now, Math::max);
+        }
+        super.execute((Runnable) timed);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        leftQueue(r);
+        if (r instanceof Timed timed) {
+            long startedAt = System.nanoTime();
+            timed.setStartedAt(startedAt);
+            queueWait.record(startedAt - timed.enqueuedAt());
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (r instanceof Timed timed) {
+            runTime.record(System.nanoTime() - timed.startedAt());
+        }
+        // submit() swallows the exception into the future, so ask the future as well
+        if (t != null || (r instanceof FutureTask<?> f && f.state() == Future.State.FAILED)) {
+            failed.increment();
+        }
+        completed.increment();
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            leftQueue(task);
+        }
+        return removed;
+    }
+
+    @Override
+    public void purge() {
+        // cancelled tasks are about to go; a worker that takes one first finds its flag cleared
+        for (Runnable r : getQueue()) {
+            if (r instanceof Future<?> f && f.isCancelled()) {
+                leftQueue(r);
+            }
+        }
+        super.purge();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        pending.forEach(this::leftQueue);
+        return pending;
+    }
+
+    /**
+     * Lowers the waiting count, unless another path already did so for this task.
+     */
+    private void leftQueue(Runnable r) {
+        if (r instanceof Timed timed && timed.leaveQueue()) {
+            waiting.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        Objects.requireNonNull(handler);
+        RejectedExecutionHandler delegate = handler instanceof CountingHandler counting ? counting.delegate : handler;
+        super.setRejectedExecutionHandler(new CountingHandler(delegate));
+    }
+
+    /**
+     * @return the handler passed by the caller, without the counting wrapper
+     */
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((CountingHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    // ---------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------
+
+    /**
+     * Point-in-time view of all metrics.
+     */
+    public record Snapshot(int poolSize,
+                           int activeCount,
+                           int queueDepth,
+                           long peakQueueDepth,
+                           long submitted,
+                           long completed,
+                           long failed,
+                           long rejected,
+                           long callerRuns,
+                           LatencyHistogram.Snapshot queueWaitNanos,
+                           LatencyHistogram.Snapshot runTimeNanos) {
+
+        @Override
+        public String toString() {
+            return "pool=" + poolSize + " active=" + activeCount + " queue=" + queueDepth
+                    + " (peak " + peakQueueDepth + ")"
+                    + " submitted=" + submitted + " completed=" + completed + " failed=" + failed
+                    + " rejected=" + rejected + " callerRuns=" + callerRuns
+                    + "\n  queueWait[ns] " + queueWaitNanos
+                    + "\n  runTime[ns]   " + runTimeNanos;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(
+                getPoolSize(),
+                getActiveCount(),
+                getQueue().size(),
+                peakWaiting.get(),
+                submitted.sum(),
+                completed.sum(),
+                failed.sum(),
+                rejected.sum(),
+                callerRuns.sum(),
+                queueWait.snapshot(),
+                runTime.snapshot()
+        );
+    }
+
+    /**
+     * Clears histograms and counters, e.g. at the start of each reporting interval.
+     */
+    public void resetMetrics() {
+        queueWait.reset();
+        runTime.reset();
+        submitted.reset();
+        completed.reset();
+        failed.reset();
+        rejected.reset();
+        callerRuns.reset();
+        peakWaiting.set(waiting.get());
+    }
+
+    /**
+     * Registers a {@link ThreadPoolMetricsMXBean} for this pool with the platform MBean server
+     * under {@code com.codeandcandles.executors:type=ThreadPool,name=<name>}.
+     *
+     * @return the object name used, for later unregistration
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.codeandcandles.executors:type=ThreadPool,name="
+                    + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMXBean(), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register MBean for pool " + name, e);
+        }
+    }
+
+    private final class MetricsMXBean implements ThreadPoolMetricsMXBean {
+        @Override
+        public int getPoolSize() {
+            return InstrumentedThreadPoolExecutor.this.getPoolSize();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return InstrumentedThreadPoolExecutor.this.getActiveCount();
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+
+        @Override
+        public long getPeakQueueDepth() {
+            return peakWaiting.get();
+        }
+
+        @Override
+        public long getSubmittedCount() {
+            return submitted.sum();
+        }
+
+        @Override
+        public long getCompletedCount() {
+            return completed.sum();
+        }
+
+        @Override
+        public long getFailedCount() {
+            return failed.sum();
+        }
+
+        @Override
+        public long getRejectedCount() {
+            return rejected.sum();
+        }
+
+        @Override
+        public long getCallerRunsCount() {
+            return callerRuns.sum();
+        }
+
+        @Override
+        public double getQueueWaitMeanMicros() {
+            return queueWait.snapshot().getMean() / 1_000.0;
+        }
+
+        @Override
+        public double getQueueWaitP99Micros() {
+            return queueWait.snapshot().getValueAtPercentile(99) / 1_000.0;
+        }
+
+        @Override
+        public double getQueueWaitMaxMicros() {
+            return queueWait.snapshot().getMax() / 1_000.0;
+        }
+
+        @Override
+        public double getRunTimeMeanMicros() {
+            return runTime.snapshot().getMean() / 1_000.0;
+        }
+
+        @Override
+        public double getRunTimeP99Micros() {
+            return runTime.snapshot().getValueAtPercentile(99) / 1_000.0;
+        }
+
+        @Override
+        public double getRunTimeMaxMicros() {
+            return runTime.snapshot().getMax() / 1_000.0;
+        }
+
+        @Override
+        public void resetMetrics() {
+            InstrumentedThreadPoolExecutor.this.resetMetrics();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Task wrappers
+    // ---------------------------------------------------------------------
+
+    /**
+     * A task that carries its own timestamps. Only one thread touches them at a time: the
+     * submitter before the hand-off to the queue, then the worker. The waiting flag is the
+     * exception, since a worker, {@code remove} and the rejection handler can race for it.
+     */
+    private interface Timed {
+        /**
+         * @return {@code true} for the first caller only; that caller accounts for the task
+         * leaving the queue
+         */
+        boolean leaveQueue();
+
+        long enqueuedAt();
+
+        void setEnqueuedAt(long nanos);
+
+        long startedAt();
+
+        void setStartedAt(long nanos);
+    }
+
+    private static final class TimedFutureTask<V> extends FutureTask<V> implements Timed {
+        private static final AtomicIntegerFieldUpdater<TimedFutureTask<?>> WAITING =
+                AtomicIntegerFieldUpdater.newUpdater(fieldOwner(), "waiting");
+
+        private volatile int waiting = 1;
+        private long enqueuedAt;
+        private long startedAt;
+
+        TimedFutureTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        TimedFutureTask(Runnable runnable, V result) {
+            super(runnable, result);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<TimedFutureTask<?>> fieldOwner() {
+            return (Class<TimedFutureTask<?>>) (Class<?>) TimedFutureTask.class;
+        }
+
+        @Override
+        public boolean leaveQueue() {
+            return WAITING.compareAndSet(this, 1, 0);
+        }
+
+        @Override
+        public long enqueuedAt() {
+            return enqueuedAt;
+        }
+
+        @Override
+        public void setEnqueuedAt(long nanos) {
+            enqueuedAt = nanos;
+        }
+
+        @Override
+        public long startedAt() {
+            return startedAt;
+        }
+
+        @Override
+        public void setStartedAt(long nanos) {
+            startedAt = nanos;
+        }
+    }
+
+    private static final class TimedRunnable implements Runnable, Timed {
+        private static final AtomicIntegerFieldUpdater<TimedRunnable> WAITING =
+                AtomicIntegerFieldUpdater.newUpdater(TimedRunnable.class, "waiting");
+
+        private final Runnable delegate;
+        private volatile int waiting = 1;
+        private long enqueuedAt;
+        private long startedAt;
+
+        TimedRunnable(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public boolean leaveQueue() {
+            return WAITING.compareAndSet(this, 1, 0);
+        }
+
+        @Override
+        public long enqueuedAt() {
+            return enqueuedAt;
+        }
+
+        @Override
+        public void setEnqueuedAt(long nanos) {
+            enqueuedAt = nanos;
+        }
+
+        @Override
+        public long startedAt() {
+            return startedAt;
+        }
+
+        @Override
+        public void setStartedAt(long nanos) {
+            startedAt = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /**
+     * Counts rejections before delegating. A task that a {@code CallerRunsPolicy} runs on the
+     * caller is counted as a caller-run too. Static, so the constructor can hand it to
+     * {@code super(...)}; the counters are reached through the executor argument.
+     */
+    private static final class CountingHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+
+        CountingHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            InstrumentedThreadPoolExecutor instrumented = (InstrumentedThreadPoolExecutor) executor;
+            instrumented.leftQueue(r);
+            instrumented.rejected.increment();
+            if (delegate instanceof CallerRunsPolicy && !executor.isShutdown()) {
+                instrumented.callerRuns.increment();
+            }
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pluggable factory for the executor that runs blocking I/O, as used by
+ * {@link CpuVsIoPoolsExample}.
+ *
+ * <p>
+ * Two modes are available:
+ * </p>
+ * <ul>
+ *     <li>{@link #CACHED} – platform threads, like {@link Executors#newCachedThreadPool()}.
+ *         Every in-flight call holds one OS thread.</li>
+ *     <li>{@link #VIRTUAL} – one virtual thread per task, like
+ *         {@link Executors#newVirtualThreadPerTaskExecutor()}. A blocked call unmounts from its
+ *         carrier, so thousands of in-flight calls need only a handful of OS threads.</li>
+ * </ul>
+ *
+ * <p>
+ * Both modes accept a {@code maxConcurrency} cap, so a slow downstream service is not flooded
+ * with more requests than it can handle:
+ * </p>
+ * <ul>
+ *     <li>{@code CACHED} caps the number of platform threads. Extra tasks wait in an unbounded queue.</li>
+ *     <li>{@code VIRTUAL} still starts one virtual thread per task, but each thread must take a
+ *         {@link java.util.concurrent.Semaphore} permit before running (see
+ *         {@link ConcurrencyLimitedExecutorService}). A virtual thread waiting for a permit costs
+ *         a few hundred bytes of heap, not an OS thread.</li>
+ * </ul>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * ExecutorService ioPool = IoExecutorFactory.VIRTUAL.create(500); // at most 500 concurrent calls
+ * </pre>
+ */
+public enum IoExecutorFactory {
+
+    CACHED {
+        @Override
+        public ExecutorService create(int maxConcurrency) {
+            if (maxConcurrency == UNBOUNDED) {
+                return Executors.newCachedThreadPool();
+            }
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    maxConcurrency,
+                    maxConcurrency,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>()
+            );
+            pool.allowCoreThreadTimeOut(true); // idle like a cached pool
+            return pool;
+        }
+    },
+
+    VIRTUAL {
+        @Override
+        public ExecutorService create(int maxConcurrency) {
+            // same as newVirtualThreadPerTaskExecutor(), but with names the examples can print
+            ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("io-virtual-", 1).factory());
+            if (maxConcurrency == UNBOUNDED) {
+                return executor;
+            }
+            return new ConcurrencyLimitedExecutorService(executor, maxConcurrency);
+        }
+    };
+
+    /**
+     * Pass as {@code maxConcurrency} to disable the concurrency cap.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * Creates an I/O executor without a concurrency cap.
+     */
+    public ExecutorService create() {
+        return create(UNBOUNDED);
+    }
+
+    /**
+     * Creates an I/O executor that runs at most {@code maxConcurrency} tasks at once.
+     *
+     * @param maxConcurrency maximum number of tasks running at the same time, or {@link #UNBOUNDED}
+     */
+    public abstract ExecutorService create(int maxConcurrency);
+}
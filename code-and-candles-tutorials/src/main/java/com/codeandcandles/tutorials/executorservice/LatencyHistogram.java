@@ -0,0 +1,151 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, lock-free latency histogram with HDR-style log-linear buckets.
+ *
+ * <p>
+ * Every power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so any recorded
+ * value is reported with at most ~12.5% relative error, from 1 ns up to {@code Long.MAX_VALUE}.
+ * All buckets are allocated up front. {@link #record(long)} does no allocation and takes no lock.
+ * Each bucket is a {@link LongAdder}, so concurrent writers on different cores do not fight over
+ * one cache line.
+ * </p>
+ *
+ * <p>
+ * {@link #snapshot()} reads the buckets without stopping writers, so a snapshot taken under load
+ * can be off by the few values recorded while it was being read.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets[indexOf(v)].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * Clears all recorded values. Not atomic with respect to concurrent {@link #record(long)} calls.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);     // >= SUB_BUCKET_BITS
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Highest value that maps to the given bucket.
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+        long width = 1L << shift;
+        long upper = lowest + width - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    /**
+     * Immutable view of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile value in {@code [0, 100]}
+         * @return upper bound of the bucket holding the requested percentile, capped at the max
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.0f p50=%d p99=%d p999=%d max=%d",
+                    count, getMean(), getValueAtPercentile(50), getValueAtPercentile(99),
+                    getValueAtPercentile(99.9), max);
+        }
+    }
+}
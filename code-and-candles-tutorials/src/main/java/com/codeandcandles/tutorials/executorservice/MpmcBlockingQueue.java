@@ -0,0 +1,508 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free multi-producer/multi-consumer {@link BlockingQueue}, meant as a
+ * drop-in replacement for {@link java.util.concurrent.ArrayBlockingQueue} in a
+ * {@link java.util.concurrent.ThreadPoolExecutor}.
+ *
+ * <p>
+ * {@code ArrayBlockingQueue} guards both ends with a single {@code ReentrantLock}. With many
+ * threads submitting tiny tasks, that lock becomes the bottleneck long before the workers do.
+ * This queue follows Dmitry Vyukov's bounded MPMC design instead:
+ * </p>
+ * <ul>
+ *     <li>a ring buffer of slots, each with its own sequence number</li>
+ *     <li>producers claim a slot by CAS on the tail counter, consumers by CAS on the head counter</li>
+ *     <li>a slot's sequence tells whether it is free for the current lap, or already filled</li>
+ *     <li>head and tail live on separate, padded cache lines, so producers and consumers do not
+ *         false-share; the slot arrays are padded at both ends for the same reason</li>
+ * </ul>
+ *
+ * <p>
+ * {@link #offer(Object)} and {@link #poll()} never block and never take a lock. The blocking methods
+ * ({@link #put(Object)}, {@link #take()} and their timed variants) spin briefly, then park on a
+ * waiter list. A successful {@code offer} wakes one parked consumer and a successful {@code poll}
+ * wakes one parked producer. Unlike {@code ArrayBlockingQueue}, there is no fairness option.
+ * </p>
+ *
+ * <p>
+ * {@link #remove(Object)} and {@code iterator().remove()} replace the element in its slot with a
+ * tombstone, which the next consumer to reach that slot skips. {@code ThreadPoolExecutor} relies on
+ * this when {@code execute} races with {@code shutdown}, in {@code shutdownNow}, {@code remove} and
+ * {@code purge}. A removed element leaves {@link #size()} and {@link #isEmpty()} at once, since
+ * {@code ThreadPoolExecutor.tryTerminate()} checks the queue right after removing. It keeps its slot,
+ * and so its share of the capacity, until a consumer passes it. The iterator is a weakly consistent
+ * snapshot.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * new ThreadPoolExecutor(2, 4, 30, TimeUnit.SECONDS,
+ *         new MpmcBlockingQueue&lt;&gt;(1024),
+ *         new ThreadPoolExecutor.CallerRunsPolicy());
+ * </pre>
+ *
+ * @param <E> element type, usually {@link Runnable}
+ */
+public class MpmcBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /** 128 bytes worth of padding: two cache lines, which also covers adjacent-line prefetching. */
+    private static final int PAD_LONGS = 16;
+    private static final int PAD_REFS = 32;
+    private static final int SPINS = 64;
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /** Left in a slot by {@link #remove(Object)}; consumers skip it. */
+    private static final Object REMOVED = new Object();
+
+    private final int capacity;
+    private final long mask;
+    private final boolean powerOfTwo;
+    private final long[] sequences;
+    private final Object[] elements;
+
+    private final PaddedCounter head = new PaddedCounter();
+    private final PaddedCounter tail = new PaddedCounter();
+    /** Tombstones between head and tail; only the remove paths touch it, not offer or poll. */
+    private final AtomicLong tombstones = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param capacity exact number of elements the queue can hold
+     */
+    public MpmcBlockingQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.powerOfTwo = Integer.bitCount(capacity) == 1;
+        this.mask = capacity - 1;
+        this.sequences = new long[capacity + 2 * PAD_LONGS];
+        this.elements = new Object[capacity + 2 * PAD_REFS];
+        for (int i = 0; i < capacity; i++) {
+            sequences[PAD_LONGS + i] = free(i);
+        }
+    }
+
+    private int slot(long position) {
+        return (int) (powerOfTwo ? position & mask : position % capacity);
+    }
+
+    /*
+     * Slot sequence encoding. Vyukov's original uses position + 1 for "filled" and
+     * position + capacity for "free again", which collide when capacity == 1. Doubling
+     * the position keeps the two states apart for every capacity, so the queue can
+     * replace ArrayBlockingQueue(1) as used in BoundedQueueBackpressureExample.
+     */
+
+    private static long free(long position) {
+        return position << 1;
+    }
+
+    private static long filled(long position) {
+        return (position << 1) + 1;
+    }
+
+    // ---------------------------------------------------------------------
+    // Non-blocking core
+    // ---------------------------------------------------------------------
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        if (!tryEnqueue(e)) {
+            return false;
+        }
+        signal(waitingConsumers);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E e = tryDequeue();
+        if (e != null) {
+            signal(waitingProducers);
+        }
+        return e;
+    }
+
+    private boolean tryEnqueue(E e) {
+        long position = tail.get();
+        for (;;) {
+            int index = slot(position);
+            long sequence = (long) SEQUENCE.getAcquire(sequences, PAD_LONGS + index);
+            long diff = sequence - free(position);
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    ELEMENT.set(elements, PAD_REFS + index, e);
+                    SEQUENCE.setVolatile(sequences, PAD_LONGS + index, filled(position));
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // the slot still holds an element from the previous lap: full
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E tryDequeue() {
+        long position = head.get();
+        for (;;) {
+            int index = slot(position);
+            long sequence = (long) SEQUENCE.getAcquire(sequences, PAD_LONGS + index);
+            long diff = sequence - filled(position);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    // getAndSet, not get + set: a concurrent remove() must either see the element
+                    // and tombstone it first, or find the slot already emptied
+                    Object e = ELEMENT.getAndSet(elements, PAD_REFS + index, null);
+                    SEQUENCE.setVolatile(sequences, PAD_LONGS + index, free(position + capacity));
+                    if (e != REMOVED) {
+                        return (E) e;
+                    }
+                    tombstones.decrementAndGet();
+                    signal(waitingProducers);
+                }
+                position = head.get();
+            } else if (diff < 0) {
+                // the producer for this lap has not published yet: empty
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head.get();
+        for (long position = h; position < h + capacity; position++) {
+            int index = slot(position);
+            if ((long) SEQUENCE.getAcquire(sequences, PAD_LONGS + index) != filled(position)) {
+                return null;
+            }
+            Object e = ELEMENT.getAcquire(elements, PAD_REFS + index);
+            if (e != REMOVED && e != null) {
+                return (E) e;
+            }
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------------
+    // Blocking operations
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        awaitOffer(e, false, 0L);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitOffer(e, true, unit.toNanos(timeout));
+    }
+
+    private boolean awaitOffer(E e, boolean timed, long nanos) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+
+        for (int i = 0; i < SPINS; i++) {
+            if (offer(e)) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+
+        Thread me = Thread.currentThread();
+        for (;;) {
+            waitingProducers.offer(me);
+            // pairs with the volatile sequence store in tryDequeue: either we see the free
+            // slot now, or the consumer sees us in the waiter list
+            VarHandle.fullFence();
+            if (offer(e)) {
+                leave(waitingProducers, me, remainingCapacity() > 0);
+                return true;
+            }
+            if (Thread.interrupted()) {
+                leave(waitingProducers, me, remainingCapacity() > 0);
+                throw new InterruptedException();
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    boolean added = offer(e);
+                    leave(waitingProducers, me, remainingCapacity() > 0);
+                    return added;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+            waitingProducers.remove(me);
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return awaitPoll(false, 0L);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitPoll(true, unit.toNanos(timeout));
+    }
+
+    private E awaitPoll(boolean timed, long nanos) throws InterruptedException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+
+        E e;
+        for (int i = 0; i < SPINS; i++) {
+            if ((e = poll()) != null) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+
+        Thread me = Thread.currentThread();
+        for (;;) {
+            waitingConsumers.offer(me);
+            // pairs with the volatile sequence store in tryEnqueue
+            VarHandle.fullFence();
+            if ((e = poll()) != null) {
+                leave(waitingConsumers, me, !isEmpty());
+                return e;
+            }
+            if (Thread.interrupted()) {
+                leave(waitingConsumers, me, !isEmpty());
+                throw new InterruptedException();
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    e = poll();
+                    leave(waitingConsumers, me, !isEmpty());
+                    return e;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+            waitingConsumers.remove(me);
+        }
+    }
+
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Deregisters a waiter that is about to return. If it is no longer in the list, another thread
+     * already spent a wake-up on it; hand that wake-up to the next waiter when there is still work
+     * for one, otherwise it would be lost.
+     */
+    private static void leave(ConcurrentLinkedQueue<Thread> waiters, Thread me, boolean workLeft) {
+        if (!waiters.remove(me) && workLeft) {
+            signal(waiters);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Bulk and inspection
+    // ---------------------------------------------------------------------
+
+    /**
+     * @return elements that can still be taken, not counting removed ones
+     */
+    @Override
+    public int size() {
+        return (int) Math.max(0, occupiedSlots() - tombstones.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return free slots; a removed element keeps its slot until a consumer passes it
+     */
+    @Override
+    public int remainingCapacity() {
+        return (int) (capacity - occupiedSlots());
+    }
+
+    private long occupiedSlots() {
+        // read head first: tail can only grow, so the difference never goes negative for long
+        long h = head.get();
+        long t = tail.get();
+        return Math.max(0, Math.min(capacity, t - h));
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Removes one element equal to {@code o} by leaving a tombstone in its slot.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        long h = head.get();
+        long t = tail.get();
+        for (long position = h; position < t && position < h + capacity; position++) {
+            Object e = ELEMENT.getAcquire(elements, PAD_REFS + slot(position));
+            if (e != null && e != REMOVED && o.equals(e) && removeAt(position, e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tombstones the slot of {@code position} if it still holds {@code e} for that lap. Loses to a
+     * consumer that has already taken the element.
+     */
+    private boolean removeAt(long position, Object e) {
+        int index = slot(position);
+        if ((long) SEQUENCE.getAcquire(sequences, PAD_LONGS + index) == filled(position)
+                && ELEMENT.compareAndSet(elements, PAD_REFS + index, e, REMOVED)) {
+            // counted before returning, so the caller's next isEmpty() already excludes it
+            tombstones.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent snapshot of the elements present at the time of the call.
+     * {@code remove()} removes the last returned element if no consumer has taken it yet.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<Object> snapshot = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        long h = head.get();
+        long t = tail.get();
+        for (long position = h; position < t && position < h + capacity; position++) {
+            int index = slot(position);
+            Object e = ELEMENT.getAcquire(elements, PAD_REFS + index);
+            if (e != null && e != REMOVED && (long) SEQUENCE.getAcquire(sequences, PAD_LONGS + index) == filled(position)) {
+                snapshot.add(e);
+                positions.add(position);
+            }
+        }
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return (E) snapshot.get(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(positions.get(last), snapshot.get(last));
+                last = -1;
+            }
+        };
+    }
+
+    // ---------------------------------------------------------------------
+    // Padded counter (Disruptor-style class-hierarchy padding)
+    // ---------------------------------------------------------------------
+
+    @SuppressWarnings("unused")
+    private static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+    }
+
+    private static class CounterValue extends LeftPadding {
+        volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedCounter extends CounterValue {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(CounterValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31;
+
+        long get() {
+            return value;
+        }
+
+        boolean compareAndSet(long expected, long next) {
+            return VALUE.compareAndSet(this, expected, next);
+        }
+    }
+}
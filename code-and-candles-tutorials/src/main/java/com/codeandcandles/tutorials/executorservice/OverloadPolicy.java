@@ -0,0 +1,149 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base class for the rejection policies that replace {@code CallerRunsPolicy} when the submitting
+ * thread must never run a task itself, for example a Netty event loop or a servlet container thread.
+ *
+ * <p>
+ * A plain {@link RejectedExecutionHandler} only runs once the queue is already full. The policies
+ * that act earlier also see the queue, through the bounded {@link AdmissionQueue} that
+ * {@link #newThreadPool} installs:
+ * </p>
+ * <ul>
+ *     <li>{@link #shouldAdmit(int, int)} is asked before every enqueue. Refusing looks to the
+ *         pool like a full queue: it grows to {@code maximumPoolSize} and then calls this handler.</li>
+ *     <li>{@link #shouldRun(long)} is asked when a worker takes a task, with the time the task spent
+ *         in the queue. Refused tasks are dropped; a dropped {@code Future} is cancelled.</li>
+ * </ul>
+ *
+ * <p>
+ * Implementations: {@link BlockingSubmitPolicy}, {@link CoDelSheddingPolicy} and
+ * {@link EarlyRejectionPolicy}. {@link RejectionPolicyLoadTest} compares them at 2x overload.
+ * A policy instance keeps per-pool state, so use one instance per executor.
+ * </p>
+ */
+public abstract class OverloadPolicy implements RejectedExecutionHandler {
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder refusedAtAdmission = new LongAdder();
+    private final LongAdder droppedAtDequeue = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a pool with a bounded queue of {@code queueCapacity} wired to this policy, both as
+     * admission check and as rejection handler.
+     */
+    public ThreadPoolExecutor newThreadPool(int corePoolSize,
+                                           int maximumPoolSize,
+                                           long keepAliveTime,
+                                           TimeUnit unit,
+                                           int queueCapacity) {
+        return new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+                new AdmissionQueue(queueCapacity, this), this);
+    }
+
+    /**
+     * Decides whether a new task may be queued. The default admits everything the queue has room for.
+     *
+     * @param queued   tasks currently in the queue
+     * @param capacity total queue capacity
+     */
+    protected boolean shouldAdmit(int queued, int capacity) {
+        return true;
+    }
+
+    /**
+     * Decides whether a task that waited {@code sojournNanos} in the queue should still run.
+     * The default runs everything.
+     */
+    protected boolean shouldRun(long sojournNanos) {
+        return true;
+    }
+
+    /**
+     * Last chance to place a task that neither the queue nor a new thread could take.
+     *
+     * @return {@code true} if the task was placed, {@code false} to reject it
+     */
+    protected boolean handleOverload(Runnable task, ThreadPoolExecutor executor) {
+        return false;
+    }
+
+    @Override
+    public final void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        if (!executor.isShutdown() && handleOverload(task, executor)) {
+            return;
+        }
+        rejected.increment();
+        throw new RejectedExecutionException(executor.isShutdown()
+                ? "Executor is shut down"
+                : getClass().getSimpleName() + " rejected task under overload");
+    }
+
+    final boolean admit(int queued, int capacity) {
+        if (shouldAdmit(queued, capacity)) {
+            admitted.increment();
+            return true;
+        }
+        refusedAtAdmission.increment();
+        return false;
+    }
+
+    final boolean run(long sojournNanos) {
+        if (shouldRun(sojournNanos)) {
+            return true;
+        }
+        droppedAtDequeue.increment();
+        return false;
+    }
+
+    /**
+     * @return tasks accepted into the queue by the admission check
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return enqueue attempts refused by the admission check; some of them may still have run on
+     * a newly started thread
+     */
+    public long getRefusedAtAdmissionCount() {
+        return refusedAtAdmission.sum();
+    }
+
+    /**
+     * @return queued tasks dropped when a worker reached them
+     */
+    public long getDroppedAtDequeueCount() {
+        return droppedAtDequeue.sum();
+    }
+
+    /**
+     * @return submissions that ended in a {@link RejectedExecutionException}
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Policy-specific metrics appended to {@link #toString()}, starting with {@code ", "}.
+     */
+    protected String details() {
+        return "";
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[admitted=" + getAdmittedCount()
+                + ", refusedAtAdmission=" + getRefusedAtAdmissionCount()
+                + ", droppedAtDequeue=" + getDroppedAtDequeueCount()
+                + ", rejected=" + getRejectedCount() + details() + "]";
+    }
+}
@@ -0,0 +1,329 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A CPU executor in which every worker owns a local deque, idle workers steal from busy ones,
+ * and callers can pin related tasks to one worker with a partition key.
+ *
+ * <p>
+ * The CPU pool in {@link CpuVsIoPoolsExample} is a {@code newFixedThreadPool(cores)}: every worker
+ * takes from one shared {@link java.util.concurrent.LinkedBlockingQueue}, so many tiny tasks all
+ * contend on its lock. Here:
+ * </p>
+ * <ul>
+ *     <li>{@link #execute(Object, Runnable)} routes a task to worker {@code hash(key) % workers}.
+ *         Tasks for the same key therefore tend to run on the same thread and find their data
+ *         still in that core's cache.</li>
+ *     <li>{@link #execute(Runnable)} without a key goes to the submitting worker's own deque when
+ *         called from inside the pool (nested work stays local), and round-robin otherwise.</li>
+ *     <li>A worker takes from the head of its own deque. When that is empty, it steals from the
+ *         tail of another worker's deque before going idle.</li>
+ * </ul>
+ *
+ * <p>
+ * {@link java.util.concurrent.ForkJoinPool} steals the same way, but gives external submitters no
+ * control over which worker's queue a task lands in, which is why this is a custom implementation.
+ * </p>
+ *
+ * <p>
+ * The key is an affinity hint, not a lock. A task can be stolen, so two tasks with the same key may
+ * run at the same time on different workers. Tasks that need per-key ordering must synchronize on
+ * their own.
+ * </p>
+ */
+public class PartitionedWorkStealingExecutor extends AbstractExecutorService {
+
+    private final Worker[] workers;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final CountDownLatch terminated;
+    private final LongAdder steals = new LongAdder();
+
+    private volatile boolean shutdown;
+    /** Set by {@link #shutdownNow()} before it interrupts the workers. */
+    private volatile boolean stopped;
+
+    /**
+     * Creates an executor with one worker per available processor.
+     */
+    public PartitionedWorkStealingExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     */
+    public PartitionedWorkStealingExecutor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.workers = new Worker[parallelism];
+        this.terminated = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Submission
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        Worker self = currentWorker();
+        int index = self != null
+                ? self.index
+                : Math.floorMod(roundRobin.getAndIncrement(), workers.length);
+        push(index, command);
+    }
+
+    /**
+     * Runs {@code command} preferably on the worker that owns {@code partitionKey}.
+     */
+    public void execute(Object partitionKey, Runnable command) {
+        Objects.requireNonNull(command);
+        push(partitionOf(partitionKey), command);
+    }
+
+    /**
+     * Keyed variant of {@link #submit(Callable)}.
+     */
+    public <T> Future<T> submit(Object partitionKey, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(partitionKey, future);
+        return future;
+    }
+
+    /**
+     * Keyed variant of {@link #submit(Runnable)}.
+     */
+    public Future<?> submit(Object partitionKey, Runnable task) {
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        execute(partitionKey, future);
+        return future;
+    }
+
+    private int partitionOf(Object partitionKey) {
+        int h = Objects.hashCode(partitionKey);
+        h ^= (h >>> 16); // spread like HashMap, so low-entropy keys do not all land on worker 0
+        return Math.floorMod(h, workers.length);
+    }
+
+    private void push(int index, Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        Worker target = workers[index];
+        target.deque.offerLast(command);
+        // shutdown may have happened after the check above, and the workers may already have
+        // drained their deques and exited; take the task back so it is not stranded. If a worker
+        // or shutdownNow() got to it first, it runs or is returned there instead.
+        if (shutdown && target.deque.removeLastOccurrence(command)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+
+        // the target may be parked; if it is busy, wake someone else to steal
+        if (target.idle) {
+            LockSupport.unpark(target.thread);
+        } else {
+            for (Worker worker : workers) {
+                if (worker.idle) {
+                    LockSupport.unpark(worker.thread);
+                    break;
+                }
+            }
+        }
+    }
+
+    private Worker currentWorker() {
+        Thread current = Thread.currentThread();
+        for (Worker worker : workers) {
+            if (worker.thread == current) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------------
+    // Lifecycle
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        List<Runnable> pending = new ArrayList<>();
+        for (Worker worker : workers) {
+            Runnable task;
+            while ((task = worker.deque.pollFirst()) != null) {
+                pending.add(task);
+            }
+            worker.thread.interrupt();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    // ---------------------------------------------------------------------
+    // Statistics
+    // ---------------------------------------------------------------------
+
+    /**
+     * @return number of tasks taken from another worker's deque
+     */
+    public long getStealCount() {
+        return steals.sum();
+    }
+
+    /**
+     * @return number of tasks executed by each worker, indexed by worker
+     */
+    public long[] getExecutedCounts() {
+        long[] counts = new long[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            counts[i] = workers[i].executed.sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of tasks waiting in all deques
+     */
+    public int getQueuedTaskCount() {
+        int queued = 0;
+        for (Worker worker : workers) {
+            queued += worker.deque.size();
+        }
+        return queued;
+    }
+
+    // ---------------------------------------------------------------------
+    // Worker
+    // ---------------------------------------------------------------------
+
+    private final class Worker implements Runnable {
+        final int index;
+        final Thread thread;
+        final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        final LongAdder executed = new LongAdder();
+        volatile boolean idle;
+
+        Worker(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "ws-worker-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    Runnable task = deque.pollFirst();
+                    if (task == null) {
+                        task = steal();
+                    }
+                    if (task != null) {
+                        runTask(task);
+                        continue;
+                    }
+                    if (shutdown) {
+                        // a push that read shutdown == false offered before this read, so its
+                        // task is visible now
+                        if (hasQueuedWork()) {
+                            continue;
+                        }
+                        return;
+                    }
+                    // publish "idle" before the final scan so a concurrent push either sees
+                    // the flag and unparks us, or we see its task
+                    idle = true;
+                    if (!hasQueuedWork() && !shutdown) {
+                        LockSupport.park(this);
+                    }
+                    idle = false;
+                    if (Thread.interrupted() && shutdown) {
+                        return;
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private Runnable steal() {
+            for (int i = 1; i < workers.length; i++) {
+                Worker victim = workers[(index + i) % workers.length];
+                Runnable task = victim.deque.pollLast();
+                if (task != null) {
+                    steals.increment();
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private boolean hasQueuedWork() {
+            for (Worker worker : workers) {
+                if (!worker.deque.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void runTask(Runnable task) {
+            // an interrupt left by the previous task must not hit this one; one from shutdownNow()
+            // must. Clear first, then read stopped, so an interrupt that races in is never lost.
+            if (Thread.interrupted() && stopped) {
+                thread.interrupt();
+            }
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                // report like an uncaught exception, but keep the worker alive
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            } finally {
+                executed.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the tasks that {@link java.util.concurrent.ExecutorService#shutdownNow()} took off a
+ * queue, so they are not lost when a {@link ShutdownCoordinator} runs out of time.
+ *
+ * <p>
+ * {@link FileTaskJournal} writes them to a local file for replay on the next start. Other sinks
+ * could hand them to a message broker or a peer instance.
+ * </p>
+ */
+@FunctionalInterface
+public interface PendingTaskSink {
+
+    /**
+     * Persists the tasks that never started on pool {@code pool}.
+     *
+     * @return how many of {@code tasks} were actually persisted; the rest are reported as lost
+     */
+    int persist(String pool, List<Runnable> tasks) throws IOException;
+
+    /**
+     * A sink that keeps nothing: every pending task is reported as lost.
+     */
+    static PendingTaskSink discard() {
+        return (pool, tasks) -> 0;
+    }
+}
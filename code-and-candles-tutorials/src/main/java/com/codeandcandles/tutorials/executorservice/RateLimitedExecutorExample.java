@@ -0,0 +1,100 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Three tenants share one {@link RateLimitedExecutorService}: 200 starts/s in total, 120 per tenant,
+ * with a one-second warmup and at most 1.5 s of waiting per task.
+ *
+ * <p>
+ * At time zero the {@code noisy} tenant submits 300 tasks and two quiet tenants submit 30 each.
+ * Without the limiter, all 360 would hit the downstream in the first few milliseconds. With it,
+ * starts are counted per 250 ms window:
+ * </p>
+ * <ul>
+ *     <li>the rate ramps up during the first second (warmup) and then holds steady;</li>
+ *     <li>the quiet tenants get their share from the first window, although {@code noisy} has ten
+ *         times as many tasks waiting;</li>
+ *     <li>tasks that could not get a permit within 1.5 s are rejected instead of queueing forever.</li>
+ * </ul>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * window(ms)      0   250   500   750  1000  1250  1500  1750  rejected
+ * noisy           6     7     8    16    50    32     5     0       176
+ * quiet-a         6     6     9     9     0     0     0     0         0
+ * quiet-b         5     7     8    10     0     0     0     0         0
+ * immediate=1 delayed=183 rejected=176
+ * </pre>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.RateLimitedExecutorExample"
+ * </pre>
+ */
+public class RateLimitedExecutorExample {
+
+    private static final int WINDOW_MILLIS = 250;
+    private static final int WINDOWS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        RateLimitedExecutorService limited = new RateLimitedExecutorService(
+                Executors.newFixedThreadPool(8), 200, 120, Duration.ofSeconds(1), Duration.ofMillis(1500));
+
+        Map<String, Integer> load = new LinkedHashMap<>();
+        load.put("noisy", 300);
+        load.put("quiet-a", 30);
+        load.put("quiet-b", 30);
+
+        Map<String, AtomicIntegerArray> starts = new LinkedHashMap<>();
+        Map<String, Integer> rejected = new LinkedHashMap<>();
+        long begin = System.nanoTime();
+
+        // interleave submissions so no tenant is favoured by submission order
+        int max = load.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (int i = 0; i < max; i++) {
+            for (Map.Entry<String, Integer> tenant : load.entrySet()) {
+                if (i >= tenant.getValue()) {
+                    continue;
+                }
+                String name = tenant.getKey();
+                AtomicIntegerArray windows = starts.computeIfAbsent(name, k -> new AtomicIntegerArray(WINDOWS + 1));
+                try {
+                    limited.execute(name, () -> {
+                        long window = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) / WINDOW_MILLIS;
+                        windows.incrementAndGet((int) Math.min(window, WINDOWS));
+                    });
+                } catch (RejectedExecutionException e) {
+                    rejected.merge(name, 1, Integer::sum);
+                }
+            }
+        }
+
+        limited.shutdown();
+        limited.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.print("window(ms) ");
+        for (int w = 0; w < WINDOWS; w++) {
+            System.out.printf("%6d", w * WINDOW_MILLIS);
+        }
+        System.out.println("  rejected");
+        starts.forEach((name, windows) -> {
+            System.out.printf("%-10s ", name);
+            for (int w = 0; w < WINDOWS; w++) {
+                System.out.printf("%6d", windows.get(w));
+            }
+            System.out.printf("  %8d%n", rejected.getOrDefault(name, 0));
+        });
+        System.out.printf("immediate=%d delayed=%d rejected=%d%n",
+                limited.getImmediateCount(), limited.getDelayedCount(), limited.getRejectedCount());
+    }
+}
@@ -0,0 +1,302 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates an {@link ExecutorService} so that tasks are handed to it at no more than a configured
+ * rate, optionally also per key (for example per tenant).
+ *
+ * <p>
+ * A bounded queue, as in {@link BoundedQueueBackpressureExample}, limits how much work waits but not
+ * how fast it starts: an idle pool drains a full queue into a downstream like
+ * {@code CpuVsIoPoolsExample.remoteApiCall()} in one burst. Here every task reserves a permit from a
+ * {@link TokenBucket} at {@code execute()}:
+ * </p>
+ * <ul>
+ *     <li>a permit that is free now hands the task to the delegate at once;</li>
+ *     <li>otherwise a timer thread hands it over when its permit is due, so neither the caller nor
+ *         a pool thread is blocked while it waits;</li>
+ *     <li>a task whose permit would not be due within {@code maxDelay} is rejected with a
+ *         {@link RejectedExecutionException}, which bounds the backlog.</li>
+ * </ul>
+ *
+ * <p>
+ * Tasks submitted with a key take a permit from that key's bucket first and then from the shared
+ * bucket, so one busy tenant cannot use up the whole rate. The shared permit is reserved only once
+ * the key's permit is due, on the timer thread if the key made the task wait. A task held back by
+ * its key therefore does not hold a shared slot that nobody uses, and the shared rate stays even.
+ * If the shared bucket then refuses the task, the key's permit is not returned. Key buckets are
+ * created on first use and kept.
+ * </p>
+ *
+ * <p>
+ * A waiting task can still fail to reach the delegate, because the shared bucket refuses it or the
+ * delegate rejects it. It is then counted in {@link #getRejectedCount()} and, if it is a
+ * {@link Future} (as from {@code submit}), cancelled so that nobody waits on it forever.
+ * </p>
+ *
+ * <p>
+ * The rate applies to hand-over, not to start: if the delegate's threads are all busy, tasks start
+ * later than their permit, never earlier.
+ * </p>
+ */
+public class RateLimitedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final TokenBucket shared;
+    private final double permitsPerSecondPerKey;
+    private final Duration warmup;
+    private final long maxDelayNanos;
+    private final ConcurrentHashMap<String, TokenBucket> keyBuckets = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final LongAdder immediate = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /** Tasks on the timer; the timer is shut down once this reaches zero after {@link #shutdown()}. */
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * @param delegate               pool that runs the tasks
+     * @param permitsPerSecond       rate shared by all tasks
+     * @param permitsPerSecondPerKey rate for each key, used by {@link #execute(String, Runnable)}
+     * @param warmup                 warmup of every bucket, see {@link TokenBucket}
+     * @param maxDelay               longest a task may wait for its permit before being rejected
+     */
+    public RateLimitedExecutorService(ExecutorService delegate, double permitsPerSecond,
+                                      double permitsPerSecondPerKey, Duration warmup, Duration maxDelay) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.shared = new TokenBucket(permitsPerSecond, warmup);
+        this.permitsPerSecondPerKey = permitsPerSecondPerKey;
+        this.warmup = warmup;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "rate-limiter-timer");
+            t.setDaemon(true);
+            return t;
+        }) {
+            @Override
+            protected void terminated() {
+                // delayed tasks have all been handed over by now
+                delegate.shutdown();
+            }
+        };
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        if (shutdown) {
+            reject(command);
+        }
+        dispatch(command, shared.reserve(maxDelayNanos));
+    }
+
+    /**
+     * Runs {@code command} within both the shared rate and the rate of {@code key}.
+     */
+    public void execute(String key, Runnable command) {
+        Objects.requireNonNull(command);
+        if (shutdown) {
+            reject(command);
+        }
+        TokenBucket bucket = keyBuckets.computeIfAbsent(key, k -> new TokenBucket(permitsPerSecondPerKey, warmup));
+        long keyWait = bucket.reserve(maxDelayNanos);
+        if (keyWait < 0) {
+            reject(command);
+        }
+        if (keyWait == 0) {
+            dispatch(command, shared.reserve(maxDelayNanos));
+        } else {
+            long deadline = System.nanoTime() + maxDelayNanos;
+            enterTimer(command, () -> reserveShared(command, deadline), keyWait);
+        }
+    }
+
+    public <T> Future<T> submit(String key, Callable<T> task) {
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(key, future);
+        return future;
+    }
+
+    public Future<?> submit(String key, Runnable task) {
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(key, future);
+        return future;
+    }
+
+    private void dispatch(Runnable command, long waitNanos) {
+        if (waitNanos < 0) {
+            reject(command);
+        }
+        if (waitNanos == 0) {
+            immediate.increment();
+            delegate.execute(command);
+        } else {
+            enterTimer(command, () -> handOver(command), waitNanos);
+        }
+    }
+
+    /**
+     * Caller thread: parks {@code command} on the timer until {@code step} is due.
+     */
+    private void enterTimer(Runnable command, Runnable step, long delayNanos) {
+        waiting.incrementAndGet();
+        try {
+            timer.schedule(step, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            leaveTimer();
+            reject(command);
+        }
+        delayed.increment();
+    }
+
+    /**
+     * Timer thread: the key's permit is due, so take the shared one now.
+     */
+    private void reserveShared(Runnable command, long deadlineNanos) {
+        long wait = shared.reserve(Math.max(0, deadlineNanos - System.nanoTime()));
+        if (wait == 0) {
+            handOver(command);
+            return;
+        }
+        try {
+            if (wait < 0) {
+                drop(command);
+            } else {
+                // still counted in waiting, so the timer is not shut down underneath us
+                timer.schedule(() -> handOver(command), wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            drop(command);  // shutdownNow()
+        }
+        leaveTimer();
+    }
+
+    /**
+     * Timer thread: the permit is due.
+     */
+    private void handOver(Runnable command) {
+        try {
+            delegate.execute(command);
+        } catch (RejectedExecutionException e) {
+            drop(command);
+        } finally {
+            leaveTimer();
+        }
+    }
+
+    private void leaveTimer() {
+        if (waiting.decrementAndGet() == 0 && shutdown) {
+            timer.shutdown();
+        }
+    }
+
+    private void reject(Runnable command) {
+        rejected.increment();
+        throw new RejectedExecutionException("Rate limit: no permit within the maximum delay for " + command);
+    }
+
+    /**
+     * A waiting task that can no longer be handed over. Nobody is left to throw to, so count it and
+     * complete its future, if it has one.
+     */
+    private void drop(Runnable command) {
+        rejected.increment();
+        if (command instanceof Future<?> future) {
+            future.cancel(false);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    /**
+     * @return tasks handed to the delegate as soon as they were submitted
+     */
+    public long getImmediateCount() {
+        return immediate.sum();
+    }
+
+    /**
+     * @return tasks that waited for their permit
+     */
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return tasks waiting for their permit right now
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    // ---------------------------------------------------------------------
+    // Lifecycle
+    // ---------------------------------------------------------------------
+
+    /**
+     * Stops accepting tasks. Tasks already waiting for a permit are still handed over at their
+     * time, after which the delegate is shut down.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (waiting.get() == 0) {
+            timer.shutdown();
+        }
+    }
+
+    /**
+     * Drops waiting tasks and shuts down the delegate now. The returned list holds the tasks that
+     * never reached the delegate followed by the delegate's own queue.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>(timer.shutdownNow());
+        pending.addAll(delegate.shutdownNow());
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return timer.isTerminated() && delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return timer.awaitTermination(timeout, unit)
+                && delegate.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,148 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load test of the rejection policies at twice the pool's capacity.
+ *
+ * <p>
+ * Eight workers run 2 ms blocking tasks, a capacity of about 4 000 tasks/s, behind a queue of 512.
+ * One producer offers 8 000 tasks/s on a fixed schedule. Latency is measured from the moment a
+ * task was <em>scheduled</em> to be submitted, so a policy that stalls the producer pays for the
+ * stall in its latency, as a real event loop would.
+ * </p>
+ * <ul>
+ *     <li><strong>goodput</strong> – tasks per second that completed within the 100 ms SLO</li>
+ *     <li><strong>rejected</strong> – submissions that failed fast with {@link RejectedExecutionException}</li>
+ *     <li><strong>dropped</strong> – tasks accepted but shed before running</li>
+ *     <li><strong>p50/p99</strong> – latency of the tasks that ran</li>
+ * </ul>
+ *
+ * <p><strong>Sample Output (abridged):</strong></p>
+ * <pre>
+ * policy          offered completed goodput/s  rejected  dropped      p50      p99
+ * CallerRuns        40000     40000       146         0        0   2415ms   4485ms
+ * Abort             40000     19858       146     20142        0    134ms    139ms
+ * BlockingSubmit    40000     40000       134         0        0   2952ms   5593ms
+ * CoDel             40000     19435      3887         0    20565     12ms     29ms
+ * EarlyRejection    40000     19463      3892     20537        0     10ms     12ms
+ * </pre>
+ *
+ * <p>
+ * {@code CallerRuns} and {@code BlockingSubmit} keep the producer busy or parked, so it falls further
+ * and further behind its schedule: everything runs, but almost nothing meets the SLO. {@code Abort}
+ * fails fast but lets the full queue add over 100 ms to every task. CoDel (shedding at dequeue) and
+ * early rejection (shedding at admission) keep the queue short, so nearly all of the pool's capacity
+ * turns into goodput. The policy metrics are printed below each row.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.RejectionPolicyLoadTest" \
+ *     -Dexec.args="5"
+ * </pre>
+ * The optional argument is the duration per policy in seconds (default 5).
+ */
+public class RejectionPolicyLoadTest {
+
+    private static final int WORKERS = 8;
+    private static final int QUEUE_CAPACITY = 512;
+    private static final long SERVICE_MICROS = 2_000;
+    private static final int OFFERED_RATE = 8_000;
+    private static final long SLO_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        Map<String, Supplier<ThreadPoolExecutor>> pools = new LinkedHashMap<>();
+        pools.put("CallerRuns", () -> plainPool(new ThreadPoolExecutor.CallerRunsPolicy()));
+        pools.put("Abort", () -> plainPool(new ThreadPoolExecutor.AbortPolicy()));
+        pools.put("BlockingSubmit", () -> new BlockingSubmitPolicy(Duration.ofMillis(10))
+                .newThreadPool(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS, QUEUE_CAPACITY));
+        pools.put("CoDel", () -> new CoDelSheddingPolicy(Duration.ofMillis(5), Duration.ofMillis(100))
+                .newThreadPool(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS, QUEUE_CAPACITY));
+        // 10% of 512 slots is ~13 ms of queue at 8 workers x 2 ms, well inside the SLO
+        pools.put("EarlyRejection", () -> new EarlyRejectionPolicy(0.02, 0.10)
+                .newThreadPool(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS, QUEUE_CAPACITY));
+
+        System.out.printf("%-15s %7s %9s %9s %9s %8s %8s %8s%n",
+                "policy", "offered", "completed", "goodput/s", "rejected", "dropped", "p50", "p99");
+        for (Map.Entry<String, Supplier<ThreadPoolExecutor>> entry : pools.entrySet()) {
+            ThreadPoolExecutor pool = entry.getValue().get();
+            pool.prestartAllCoreThreads();
+            Result result = run(pool, seconds);
+            System.out.printf("%-15s %7d %9d %9d %9d %8d %6dms %6dms%n",
+                    entry.getKey(), result.offered, result.completed, result.goodput / seconds,
+                    result.rejected, result.offered - result.completed - result.rejected,
+                    TimeUnit.NANOSECONDS.toMillis(result.latency.getValueAtPercentile(50)),
+                    TimeUnit.NANOSECONDS.toMillis(result.latency.getValueAtPercentile(99)));
+            if (pool.getRejectedExecutionHandler() instanceof OverloadPolicy policy) {
+                System.out.println("                " + policy);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor plainPool(RejectedExecutionHandler handler) {
+        return new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), handler);
+    }
+
+    private record Result(long offered, long completed, long goodput, long rejected,
+                          LatencyHistogram.Snapshot latency) {
+    }
+
+    private static Result run(ThreadPoolExecutor pool, int seconds) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder completed = new LongAdder();
+        LongAdder goodput = new LongAdder();
+        long rejected = 0;
+
+        long period = TimeUnit.SECONDS.toNanos(1) / OFFERED_RATE;
+        long offered = (long) OFFERED_RATE * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < offered; i++) {
+            long scheduled = start + i * period;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            try {
+                pool.execute(() -> {
+                    sleepMicros(SERVICE_MICROS);
+                    long elapsed = System.nanoTime() - scheduled;
+                    latency.record(elapsed);
+                    completed.increment();
+                    if (elapsed <= SLO_NANOS) {
+                        goodput.increment();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected++;
+            }
+        }
+
+        // let the accepted backlog finish; accepted tasks that never ran were dropped by the policy
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+        return new Result(offered, completed.sum(), goodput.sum(), rejected, latency.snapshot());
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
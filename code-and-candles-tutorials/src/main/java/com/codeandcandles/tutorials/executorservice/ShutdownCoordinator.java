@@ -0,0 +1,239 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shuts down many executors in parallel against one global deadline, instead of the
+ * {@link ShutdownBestPracticeExample} pattern repeated pool after pool.
+ *
+ * <p><strong>Phases:</strong></p>
+ * <ol>
+ *     <li><strong>drain</strong> – {@code shutdown()} is called on every pool at once, and each pool
+ *         gets its own waiter thread, so a slow pool does not delay the clock of a fast one.</li>
+ *     <li><strong>force</strong> – pools still running at {@code deadline - forceGrace} get
+ *         {@code shutdownNow()}. The tasks it returns, which never started, go to the
+ *         {@link PendingTaskSink} so they can be replayed on the next start.</li>
+ *     <li><strong>grace</strong> – interrupted tasks get the rest of the deadline to finish.</li>
+ * </ol>
+ *
+ * <p>
+ * {@link #shutdown()} therefore returns within the deadline (plus the time the sink takes to
+ * persist), and the {@link Report} shows how long each pool took to drain. That is the number to
+ * compare with the termination grace period of a rolling restart.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * ShutdownCoordinator coordinator = new ShutdownCoordinator(
+ *         Duration.ofSeconds(20), Duration.ofSeconds(2), new FileTaskJournal(journalPath));
+ * coordinator.register("requests", requestPool);
+ * coordinator.register("io", ioPool);
+ * coordinator.installShutdownHook();
+ * </pre>
+ */
+public class ShutdownCoordinator {
+
+    private final Duration deadline;
+    private final Duration forceGrace;
+    private final PendingTaskSink sink;
+    private final Map<String, ExecutorService> pools = new LinkedHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * @param deadline   total time {@link #shutdown()} may take
+     * @param forceGrace part of the deadline reserved for interrupted tasks after {@code shutdownNow()}
+     * @param sink       where tasks that never started are persisted
+     */
+    public ShutdownCoordinator(Duration deadline, Duration forceGrace, PendingTaskSink sink) {
+        if (deadline.isNegative() || forceGrace.isNegative() || forceGrace.compareTo(deadline) > 0) {
+            throw new IllegalArgumentException("need 0 <= forceGrace <= deadline");
+        }
+        this.deadline = deadline;
+        this.forceGrace = forceGrace;
+        this.sink = Objects.requireNonNull(sink);
+    }
+
+    /**
+     * Adds a pool to be shut down. Names appear in the report and in the journal.
+     */
+    public synchronized ShutdownCoordinator register(String name, ExecutorService pool) {
+        Objects.requireNonNull(pool);
+        if (started.get()) {
+            throw new IllegalStateException("shutdown already started");
+        }
+        if (pools.putIfAbsent(name, pool) != null) {
+            throw new IllegalArgumentException("pool already registered: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * Runs {@link #shutdown()} from a JVM shutdown hook (SIGTERM, {@code System.exit}) and prints the report.
+     */
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                System.out.println(shutdown());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shutdown-coordinator"));
+    }
+
+    /**
+     * Drain result of one pool.
+     *
+     * @param drainNanos     from the start of the shutdown to termination, or to the end of the
+     *                       shutdown if the pool never terminated
+     * @param forced         whether {@code shutdownNow()} was needed
+     * @param pendingTasks   tasks returned by {@code shutdownNow()}
+     * @param persistedTasks how many of those the sink kept
+     */
+    public record PoolReport(String name,
+                             long drainNanos,
+                             boolean terminated,
+                             boolean forced,
+                             int pendingTasks,
+                             int persistedTasks) {
+
+        public int lostTasks() {
+            return pendingTasks - persistedTasks;
+        }
+    }
+
+    public record Report(long totalNanos, boolean withinDeadline, List<PoolReport> pools) {
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(String.format("shutdown took %d ms (%s)%n",
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), withinDeadline ? "within deadline" : "DEADLINE MISSED"));
+            for (PoolReport pool : pools) {
+                out.append(String.format("  %-12s drained in %5d ms  terminated=%-5s forced=%-5s pending=%d persisted=%d lost=%d%n",
+                        pool.name(), TimeUnit.NANOSECONDS.toMillis(pool.drainNanos()), pool.terminated(),
+                        pool.forced(), pool.pendingTasks(), pool.persistedTasks(), pool.lostTasks()));
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Shuts down all registered pools. Only the first call does anything; later calls throw.
+     */
+    public Report shutdown() throws InterruptedException {
+        Map<String, ExecutorService> snapshot;
+        synchronized (this) {
+            if (!started.compareAndSet(false, true)) {
+                throw new IllegalStateException("shutdown already started");
+            }
+            snapshot = new LinkedHashMap<>(pools);
+        }
+
+        long start = System.nanoTime();
+        long forceAt = start + deadline.minus(forceGrace).toNanos();
+        long endAt = start + deadline.toNanos();
+
+        List<Drain> drains = new ArrayList<>(snapshot.size());
+        for (Map.Entry<String, ExecutorService> entry : snapshot.entrySet()) {
+            entry.getValue().shutdown();
+            drains.add(new Drain(entry.getKey(), entry.getValue(), start));
+        }
+
+        // phase 1: every pool drains on its own waiter thread until forceAt
+        for (Drain drain : drains) {
+            drain.awaitUntil(forceAt);
+        }
+        for (Drain drain : drains) {
+            drain.join();
+        }
+
+        // phase 2: force the stragglers and hand their queues to the sink
+        for (Drain drain : drains) {
+            if (!drain.terminated) {
+                drain.force();
+            }
+        }
+
+        // phase 3: interrupted tasks get whatever is left of the deadline
+        for (Drain drain : drains) {
+            if (!drain.terminated) {
+                drain.awaitUntil(endAt);
+            }
+        }
+        List<PoolReport> reports = new ArrayList<>(drains.size());
+        for (Drain drain : drains) {
+            drain.join();
+            reports.add(drain.report());
+        }
+
+        long total = System.nanoTime() - start;
+        return new Report(total, total <= deadline.toNanos(), List.copyOf(reports));
+    }
+
+    /**
+     * Per-pool state. {@code terminated} and {@code finishedAt} are written by the waiter thread
+     * and read after {@link #join()}, which orders the accesses.
+     */
+    private final class Drain {
+        private final String name;
+        private final ExecutorService pool;
+        private final long start;
+        private Thread waiter;
+        private volatile boolean terminated;
+        private volatile long finishedAt;
+        private boolean forced;
+        private int pending;
+        private int persisted;
+
+        Drain(String name, ExecutorService pool, long start) {
+            this.name = name;
+            this.pool = pool;
+            this.start = start;
+        }
+
+        void awaitUntil(long until) {
+            waiter = Thread.ofVirtual().name("drain-" + name).start(() -> {
+                try {
+                    long remaining = until - System.nanoTime();
+                    if (pool.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                        finishedAt = System.nanoTime();
+                        terminated = true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        void join() throws InterruptedException {
+            waiter.join();
+        }
+
+        void force() {
+            forced = true;
+            List<Runnable> tasks = pool.shutdownNow();
+            pending = tasks.size();
+            if (pending == 0) {
+                return;
+            }
+            try {
+                persisted = Math.min(pending, sink.persist(name, tasks));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not persist " + pending + " pending tasks of pool " + name + ": " + e);
+            }
+        }
+
+        PoolReport report() {
+            long drainNanos = (terminated ? finishedAt : System.nanoTime()) - start;
+            return new PoolReport(name, drainNanos, terminated, forced, pending, persisted);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extends {@link ShutdownBestPracticeExample} to several pools, a global deadline and a journal of
+ * the tasks that did not make it.
+ *
+ * <p>
+ * Two pools are shut down together with a 2 second deadline, of which 500 ms is reserved for
+ * interrupted tasks:
+ * </p>
+ * <ul>
+ *     <li><strong>fast</strong> – four short tasks; it drains on its own well before the deadline.</li>
+ *     <li><strong>slow</strong> – one thread and eight {@link FileTaskJournal.Journaled} tasks of
+ *         600 ms each. Only a few can finish; the rest are returned by {@code shutdownNow()} and
+ *         written to the journal.</li>
+ * </ul>
+ * <p>
+ * The example then simulates the next start: it reads the journal and runs the saved tasks on a
+ * fresh pool.
+ * </p>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * shutdown took 1520 ms (within deadline)
+ *   fast         drained in   196 ms  terminated=true  forced=false pending=0 persisted=0 lost=0
+ *   slow         drained in  1519 ms  terminated=true  forced=true  pending=5 persisted=5 lost=0
+ *
+ * Replaying 5 journaled tasks after restart
+ * Replayed invoice-3
+ * ...
+ * </pre>
+ *
+ * <p>
+ * The interrupted task in the slow pool stops its sleep and exits during the grace period, so that
+ * pool terminates right after the force point at 1.5 s and the shutdown returns early.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.ShutdownCoordinatorExample"
+ * </pre>
+ */
+public class ShutdownCoordinatorExample {
+
+    /** A unit of work that can be written to the journal and rebuilt from its entry. */
+    private record InvoiceTask(int id) implements FileTaskJournal.Journaled {
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(600);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public String journalEntry() {
+            return "invoice-" + id;
+        }
+
+        static InvoiceTask fromEntry(String entry) {
+            return new InvoiceTask(Integer.parseInt(entry.substring("invoice-".length())));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+
+        Path journalFile = Files.createTempFile("pending-tasks", ".journal");
+        FileTaskJournal journal = new FileTaskJournal(journalFile);
+        journal.clear();
+
+        ExecutorService fast = Executors.newFixedThreadPool(2);
+        ExecutorService slow = Executors.newSingleThreadExecutor();
+
+        for (int i = 0; i < 4; i++) {
+            fast.execute(() -> sleep(100));
+        }
+        for (int i = 0; i < 8; i++) {
+            slow.execute(new InvoiceTask(i)); // execute(), not submit(): keeps the task journalable
+        }
+
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(
+                Duration.ofSeconds(2), Duration.ofMillis(500), journal)
+                .register("fast", fast)
+                .register("slow", slow);
+
+        System.out.println(coordinator.shutdown());
+
+        // --- next start ---
+        var entries = journal.readAll();
+        System.out.println("Replaying " + entries.size() + " journaled tasks after restart");
+        ExecutorService restarted = Executors.newFixedThreadPool(4);
+        for (FileTaskJournal.Entry entry : entries) {
+            InvoiceTask task = InvoiceTask.fromEntry(entry.task());
+            restarted.execute(() -> {
+                task.run();
+                System.out.println("Replayed " + task.journalEntry());
+            });
+        }
+        journal.clear();
+
+        restarted.shutdown();
+        restarted.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
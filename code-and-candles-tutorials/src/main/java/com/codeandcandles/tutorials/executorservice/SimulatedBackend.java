@@ -0,0 +1,88 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for a downstream service, like {@code CpuVsIoPoolsExample.remoteApiCall()} but
+ * with a configurable latency distribution, so tail-latency techniques can be tried without a
+ * network.
+ *
+ * <p>
+ * {@link #call(Object)} sleeps for a latency drawn from the {@link LatencyDistribution} and returns
+ * its argument. It reacts to interruption like a well-behaved client, and counts calls, cancelled
+ * calls and peak concurrency, which is the load the backend would see.
+ * </p>
+ */
+public class SimulatedBackend {
+
+    /**
+     * Draws one latency sample, in nanoseconds.
+     */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+
+        long sampleNanos(ThreadLocalRandom random);
+
+        static LatencyDistribution constant(long millis) {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return random -> nanos;
+        }
+
+        /**
+         * Log-normal around {@code medianMillis}; {@code sigma} around 0.5 gives a realistic tail.
+         */
+        static LatencyDistribution logNormal(double medianMillis, double sigma) {
+            double mu = Math.log(medianMillis * 1_000_000.0);
+            return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+
+        /**
+         * Mostly {@code fastMillis}, but with probability {@code slowProbability} the call takes
+         * {@code slowMillis}, e.g. a GC pause or a bad replica.
+         */
+        static LatencyDistribution bimodal(long fastMillis, long slowMillis, double slowProbability) {
+            long fast = TimeUnit.MILLISECONDS.toNanos(fastMillis);
+            long slow = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+            return random -> random.nextDouble() < slowProbability ? slow : fast;
+        }
+    }
+
+    private final LatencyDistribution latency;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public SimulatedBackend(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    public <T> T call(T request) throws InterruptedException {
+        calls.increment();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            TimeUnit.NANOSECONDS.sleep(latency.sampleNanos(ThreadLocalRandom.current()));
+            return request;
+        } catch (InterruptedException e) {
+            cancelled.increment();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+}
@@ -0,0 +1,95 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Three {@link TaskScope}s on one fixed pool, each showing a way a parent stops its children
+ * instead of leaving them running as {@link CallableFutureExample} would.
+ *
+ * <ol>
+ *     <li><strong>first failure</strong> – one of three lookups fails; the slow lookup is
+ *         interrupted instead of running for its full two seconds.</li>
+ *     <li><strong>deadline</strong> – the parent allows 300 ms; the child still running at that
+ *         point is cancelled and the parent gets a {@code TimeoutException}.</li>
+ *     <li><strong>first success</strong> – the same request goes to two replicas; the fast answer
+ *         wins and the slow replica is cancelled.</li>
+ * </ol>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * [failure] inventory cancelled after 105 ms
+ * [failure] parent failed: java.lang.IllegalStateException: pricing service unavailable
+ * [deadline] report cancelled after 300 ms
+ * [deadline] parent timed out: scope deadline 2026-10-17T18:49:28.311876271Z passed
+ * [success] replica-a cancelled after 54 ms
+ * [success] answer from replica-b
+ * </pre>
+ *
+ * <p>
+ * Every "cancelled" line is printed by the child itself, from its {@code InterruptedException}
+ * handler, before the parent's {@code close()} returns.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.StructuredScopeExample"
+ * </pre>
+ */
+public class StructuredScopeExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        // 1. ShutdownOnFailure: a failed child cancels its siblings
+        try (var scope = new TaskScope.ShutdownOnFailure(pool)) {
+            scope.fork(() -> call("failure", "profile", 50));
+            scope.fork(() -> call("failure", "inventory", 2000));
+            scope.fork(() -> {
+                Thread.sleep(100);
+                throw new IllegalStateException("pricing service unavailable");
+            });
+            scope.join().throwIfFailed();
+        } catch (ExecutionException e) {
+            System.out.println("[failure] parent failed: " + e.getCause());
+        }
+
+        // 2. deadline: the parent gives up and takes its children with it
+        try (var scope = new TaskScope.ShutdownOnFailure(pool)) {
+            scope.fork(() -> call("deadline", "report", 1000));
+            scope.joinUntil(Instant.now().plusMillis(300));
+        } catch (TimeoutException e) {
+            System.out.println("[deadline] parent timed out: " + e.getMessage());
+        }
+
+        // 3. ShutdownOnSuccess: a hedged request, first answer wins
+        try (var scope = new TaskScope.ShutdownOnSuccess<String>(pool)) {
+            scope.fork(() -> call("success", "replica-a", 300));
+            scope.fork(() -> call("success", "replica-b", 50));
+            System.out.println("[success] answer from " + scope.join().result());
+        } catch (ExecutionException e) {
+            System.out.println("[success] every replica failed: " + e.getCause());
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static String call(String scenario, String name, long millis) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(millis);
+            return name;
+        } catch (InterruptedException e) {
+            System.out.println("[" + scenario + "] " + name + " cancelled after "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            throw e;
+        }
+    }
+}
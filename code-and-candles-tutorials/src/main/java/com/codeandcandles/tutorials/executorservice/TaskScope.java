@@ -0,0 +1,481 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Structured concurrency on top of an ordinary {@link Executor}, in the spirit of the JDK's
+ * {@code StructuredTaskScope}.
+ *
+ * <p>
+ * In {@link CallableFutureExample} and {@link DeadlockExample} a sub-task outlives the code that
+ * submitted it: if the caller gives up, the sub-task keeps running. A scope ties sub-tasks to a
+ * block of code instead:
+ * </p>
+ * <ul>
+ *     <li>{@link #fork(Callable)} starts a child on the executor;</li>
+ *     <li>{@link #join()} or {@link #joinUntil(Instant)} waits for the children;</li>
+ *     <li>{@link #close()}, at the end of the {@code try} block, cancels every child that is still
+ *         running and waits until they have all stopped, so no child outlives the scope.</li>
+ * </ul>
+ *
+ * <p>
+ * Cancellation interrupts the child's thread. When a child itself opens a scope, the interrupt
+ * makes its {@code join()} throw, and its {@code close()} cancels the grandchildren, so
+ * cancellation travels down the whole tree. A child that ignores interrupts cannot be stopped, and
+ * {@code close()} waits for it.
+ * </p>
+ *
+ * <p>
+ * Policies decide when to stop early, through {@link #handleComplete(Subtask)}:
+ * </p>
+ * <ul>
+ *     <li>{@link ShutdownOnFailure} – the first failure cancels the rest (fan-out where every part is needed);</li>
+ *     <li>{@link ShutdownOnSuccess} – the first success cancels the rest (hedged or redundant requests).</li>
+ * </ul>
+ *
+ * <p>
+ * {@code fork}, {@code join} and {@code close} may only be called by the thread that created the
+ * scope. Children that complete after the scope was shut down are ignored, and their
+ * {@link Subtask} stays {@link Subtask.State#UNAVAILABLE}.
+ * </p>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * try (var scope = new TaskScope.ShutdownOnFailure(pool)) {
+ *     Subtask&lt;User&gt; user = scope.fork(() -&gt; findUser(id));
+ *     Subtask&lt;List&lt;Order&gt;&gt; orders = scope.fork(() -&gt; findOrders(id));
+ *     scope.joinUntil(Instant.now().plusMillis(200)).throwIfFailed();
+ *     return new Page(user.get(), orders.get());
+ * }
+ * </pre>
+ *
+ * @param <T> result type of the children
+ */
+public class TaskScope<T> implements AutoCloseable {
+
+    /**
+     * Handle on one forked child.
+     */
+    public static final class Subtask<T> implements Supplier<T> {
+
+        public enum State {
+            UNAVAILABLE,
+            SUCCESS,
+            FAILED
+        }
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int EXITED = 2;
+
+        private final Callable<? extends T> task;
+        private final AtomicInteger phase = new AtomicInteger(NEW);
+        private volatile State state = State.UNAVAILABLE;
+        private volatile T result;
+        private volatile Throwable exception;
+        private Thread runner; // guarded by this
+
+        private Subtask(Callable<? extends T> task) {
+            this.task = task;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        /**
+         * @throws IllegalStateException if the child did not complete successfully
+         */
+        @Override
+        public T get() {
+            if (state != State.SUCCESS) {
+                throw new IllegalStateException("subtask state is " + state);
+            }
+            return result;
+        }
+
+        /**
+         * @throws IllegalStateException if the child did not fail
+         */
+        public Throwable exception() {
+            if (state != State.FAILED) {
+                throw new IllegalStateException("subtask state is " + state);
+            }
+            return exception;
+        }
+
+        private synchronized void interruptIfRunning() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    private final Executor executor;
+    private final Thread owner = Thread.currentThread();
+    private final Queue<Subtask<? extends T>> subtasks = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int running; // children forked and not yet exited, guarded by lock
+
+    private volatile boolean shutdown;
+    private boolean closed;
+
+    public TaskScope(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    // ---------------------------------------------------------------------
+    // Owner API
+    // ---------------------------------------------------------------------
+
+    /**
+     * Starts {@code task} as a child of this scope. After shutdown the task is not started.
+     */
+    public <U extends T> Subtask<U> fork(Callable<? extends U> task) {
+        ensureOwner();
+        if (closed) {
+            throw new IllegalStateException("scope is closed");
+        }
+        Subtask<U> subtask = new Subtask<>(Objects.requireNonNull(task));
+        if (shutdown) {
+            subtask.phase.set(Subtask.EXITED);
+            return subtask;
+        }
+        lock.lock();
+        try {
+            running++;
+        } finally {
+            lock.unlock();
+        }
+        subtasks.add(subtask);
+        try {
+            executor.execute(() -> runChild(subtask));
+        } catch (RejectedExecutionException e) {
+            if (subtask.phase.compareAndSet(Subtask.NEW, Subtask.EXITED)) {
+                complete(subtask, null, e);
+                exited();
+            }
+        }
+        if (shutdown) {
+            skipIfNotStarted(subtask); // shutdown() may have missed it
+        }
+        return subtask;
+    }
+
+    /**
+     * Waits until every child has finished or the scope is shut down.
+     */
+    public TaskScope<T> join() throws InterruptedException {
+        ensureOwner();
+        lock.lockInterruptibly();
+        try {
+            while (running > 0 && !shutdown) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Like {@link #join()}, but shuts the scope down and throws when {@code deadline} passes first.
+     * The children are cancelled before the exception is thrown.
+     */
+    public TaskScope<T> joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+        ensureOwner();
+        long nanos = Math.max(0, deadline.toEpochMilli() - System.currentTimeMillis()) * 1_000_000L;
+        boolean timedOut = false;
+        lock.lockInterruptibly();
+        try {
+            while (running > 0 && !shutdown) {
+                if (nanos <= 0) {
+                    timedOut = true;
+                    break;
+                }
+                nanos = changed.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (timedOut) {
+            shutdown();
+            throw new TimeoutException("scope deadline " + deadline + " passed");
+        }
+        return this;
+    }
+
+    /**
+     * Cancels all children: those not yet started never run, running ones are interrupted. May be
+     * called from any thread, including from a child through {@link #handleComplete(Subtask)}.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        for (Subtask<? extends T> subtask : subtasks) {
+            if (!skipIfNotStarted(subtask)) {
+                subtask.interruptIfRunning();
+            }
+        }
+        signal();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Shuts the scope down and waits until every child has stopped.
+     */
+    @Override
+    public void close() {
+        ensureOwner();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        shutdown();
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            while (running > 0) {
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called on the child's thread when a child succeeds or fails before shutdown. Policies
+     * override this to decide when to shut down.
+     */
+    protected void handleComplete(Subtask<? extends T> subtask) {
+    }
+
+    protected final void ensureOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new WrongThreadException("only the thread that opened the scope may use it");
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Children
+    // ---------------------------------------------------------------------
+
+    private <U extends T> void runChild(Subtask<U> subtask) {
+        if (!subtask.phase.compareAndSet(Subtask.NEW, Subtask.RUNNING)) {
+            return; // cancelled before it started; already counted as exited
+        }
+        synchronized (subtask) {
+            subtask.runner = Thread.currentThread();
+        }
+        try {
+            if (shutdown) {
+                return;
+            }
+            U value = null;
+            Throwable error = null;
+            try {
+                value = subtask.task.call();
+            } catch (Throwable t) {
+                error = t;
+            }
+            complete(subtask, value, error);
+        } finally {
+            synchronized (subtask) {
+                subtask.runner = null;
+            }
+            if (shutdown) {
+                Thread.interrupted(); // do not leak our cancellation interrupt into the pool thread
+            }
+            subtask.phase.set(Subtask.EXITED);
+            exited();
+        }
+    }
+
+    private <U extends T> void complete(Subtask<U> subtask, U value, Throwable error) {
+        if (shutdown) {
+            return;
+        }
+        if (error == null) {
+            subtask.result = value;
+            subtask.state = Subtask.State.SUCCESS;
+        } else {
+            subtask.exception = error;
+            subtask.state = Subtask.State.FAILED;
+        }
+        handleComplete(subtask);
+    }
+
+    private boolean skipIfNotStarted(Subtask<? extends T> subtask) {
+        if (subtask.phase.compareAndSet(Subtask.NEW, Subtask.EXITED)) {
+            exited();
+            return true;
+        }
+        return false;
+    }
+
+    private void exited() {
+        lock.lock();
+        try {
+            running--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Policies
+    // ---------------------------------------------------------------------
+
+    /**
+     * Shuts down on the first failed child. Use when every child's result is needed.
+     */
+    public static final class ShutdownOnFailure extends TaskScope<Object> {
+
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        public ShutdownOnFailure(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        protected void handleComplete(Subtask<?> subtask) {
+            if (subtask.state() == Subtask.State.FAILED
+                    && firstFailure.compareAndSet(null, subtask.exception())) {
+                shutdown();
+            }
+        }
+
+        @Override
+        public ShutdownOnFailure join() throws InterruptedException {
+            super.join();
+            return this;
+        }
+
+        @Override
+        public ShutdownOnFailure joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+            super.joinUntil(deadline);
+            return this;
+        }
+
+        /**
+         * @return the first failure, if any child failed
+         */
+        public Optional<Throwable> exception() {
+            ensureOwner();
+            return Optional.ofNullable(firstFailure.get());
+        }
+
+        /**
+         * @throws ExecutionException with the first failure as cause, if any child failed
+         */
+        public void throwIfFailed() throws ExecutionException {
+            throwIfFailed(ExecutionException::new);
+        }
+
+        public <X extends Throwable> void throwIfFailed(Function<Throwable, ? extends X> mapper) throws X {
+            ensureOwner();
+            Throwable failure = firstFailure.get();
+            if (failure != null) {
+                throw mapper.apply(failure);
+            }
+        }
+    }
+
+    /**
+     * Shuts down on the first successful child. Use for hedged or redundant requests where any one
+     * answer is enough.
+     */
+    public static final class ShutdownOnSuccess<T> extends TaskScope<T> {
+
+        private final AtomicReference<Subtask<? extends T>> firstSuccess = new AtomicReference<>();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        public ShutdownOnSuccess(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends T> subtask) {
+            if (subtask.state() == Subtask.State.SUCCESS) {
+                if (firstSuccess.compareAndSet(null, subtask)) {
+                    shutdown();
+                }
+            } else {
+                firstFailure.compareAndSet(null, subtask.exception());
+            }
+        }
+
+        @Override
+        public ShutdownOnSuccess<T> join() throws InterruptedException {
+            super.join();
+            return this;
+        }
+
+        @Override
+        public ShutdownOnSuccess<T> joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+            super.joinUntil(deadline);
+            return this;
+        }
+
+        /**
+         * @return the result of the first child to succeed
+         * @throws ExecutionException    if no child succeeded; the cause is the first failure
+         * @throws IllegalStateException if no child completed at all
+         */
+        public T result() throws ExecutionException {
+            return result(ExecutionException::new);
+        }
+
+        public <X extends Throwable> T result(Function<Throwable, ? extends X> mapper) throws X {
+            ensureOwner();
+            Subtask<? extends T> winner = firstSuccess.get();
+            if (winner != null) {
+                return winner.get();
+            }
+            Throwable failure = firstFailure.get();
+            if (failure != null) {
+                throw mapper.apply(failure);
+            }
+            throw new IllegalStateException("no subtask completed");
+        }
+    }
+}
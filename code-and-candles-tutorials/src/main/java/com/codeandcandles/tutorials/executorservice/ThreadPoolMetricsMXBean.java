@@ -0,0 +1,47 @@
+package com.codeandcandles.tutorials.executorservice;
+
+/**
+ * JMX view of an {@link InstrumentedThreadPoolExecutor}.
+ *
+ * <p>
+ * Latencies are exposed in microseconds as plain numbers, so JConsole and VisualVM can chart them
+ * without a custom plugin.
+ * </p>
+ */
+public interface ThreadPoolMetricsMXBean {
+
+    int getPoolSize();
+
+    int getActiveCount();
+
+    int getQueueDepth();
+
+    /**
+     * @return the most tasks submitted but not yet started at once, since the last reset
+     */
+    long getPeakQueueDepth();
+
+    long getSubmittedCount();
+
+    long getCompletedCount();
+
+    long getFailedCount();
+
+    long getRejectedCount();
+
+    long getCallerRunsCount();
+
+    double getQueueWaitMeanMicros();
+
+    double getQueueWaitP99Micros();
+
+    double getQueueWaitMaxMicros();
+
+    double getRunTimeMeanMicros();
+
+    double getRunTimeP99Micros();
+
+    double getRunTimeMaxMicros();
+
+    void resetMetrics();
+}
@@ -0,0 +1,156 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free token bucket that paces permits at a steady rate, with an optional smooth warmup.
+ *
+ * <p>
+ * Permits are reserved rather than counted. Each reservation moves the time at which the next
+ * permit becomes free, and the caller waits until its own reservation is due. This paces
+ * reservations evenly instead of releasing a burst at the start of every second.
+ * </p>
+ *
+ * <p>
+ * With a warmup period, the bucket follows the "warming up" model of Guava's {@code RateLimiter}.
+ * After being idle it stores permits, and spending stored permits is <em>slower</em> than the
+ * stable rate: the first permits after a pause are spaced by three stable intervals. The spacing
+ * shrinks linearly to the stable interval over the warmup period. A downstream with cold caches
+ * or connection pools sees the rate ramp up instead of jumping to full speed. Without warmup, idle
+ * time is not saved up and the bucket simply paces at the stable rate.
+ * </p>
+ *
+ * <p>
+ * Both values of the state (next free time, stored permits) live in one immutable record that is
+ * replaced with {@code compareAndSet}, so no lock is taken. A successful reservation allocates one
+ * small record.
+ * </p>
+ */
+public class TokenBucket {
+
+    private static final double COLD_FACTOR = 3.0;
+
+    private record State(long nextFreeNanos, double storedPermits) {
+    }
+
+    private final double stableIntervalNanos;
+    private final double maxPermits;
+    private final double thresholdPermits;
+    private final double slope;
+    private final double coolDownIntervalNanos;
+    private final long originNanos = System.nanoTime();
+    private final AtomicReference<State> state;
+
+    /**
+     * @param permitsPerSecond stable rate
+     * @param warmup           time to go from the cold rate (a third of the stable rate) to the
+     *                         stable rate; {@link Duration#ZERO} disables warmup
+     */
+    public TokenBucket(double permitsPerSecond, Duration warmup) {
+        if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        if (warmup.isNegative()) {
+            throw new IllegalArgumentException("warmup must not be negative");
+        }
+        this.stableIntervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        double warmupNanos = warmup.toNanos();
+        double coldIntervalNanos = stableIntervalNanos * COLD_FACTOR;
+        this.thresholdPermits = 0.5 * warmupNanos / stableIntervalNanos;
+        this.maxPermits = thresholdPermits + 2.0 * warmupNanos / (stableIntervalNanos + coldIntervalNanos);
+        this.slope = maxPermits > thresholdPermits
+                ? (coldIntervalNanos - stableIntervalNanos) / (maxPermits - thresholdPermits)
+                : 0;
+        this.coolDownIntervalNanos = maxPermits > 0 ? warmupNanos / maxPermits : 0;
+        // start cold: a fresh bucket warms up like one that has been idle
+        this.state = new AtomicReference<>(new State(0, maxPermits));
+    }
+
+    /**
+     * Reserves one permit.
+     *
+     * @return nanoseconds the caller must wait before using the permit, {@code 0} if it may be
+     *         used at once
+     */
+    public long reserve() {
+        return reserve(Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves one permit if it becomes free within {@code maxWaitNanos}. Otherwise nothing is
+     * reserved.
+     *
+     * @return nanoseconds to wait, or {@code -1} if the permit would not be free in time
+     */
+    public long reserve(long maxWaitNanos) {
+        long now = System.nanoTime() - originNanos;
+        while (true) {
+            State current = state.get();
+            long wait = Math.max(0, current.nextFreeNanos() - now);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            State next = next(current, now);
+            if (state.compareAndSet(current, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Takes a permit only if it is free now.
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Waits for a permit.
+     */
+    public void acquire() throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve());
+    }
+
+    public double getPermitsPerSecond() {
+        return TimeUnit.SECONDS.toNanos(1) / stableIntervalNanos;
+    }
+
+    private State next(State current, long now) {
+        long nextFree = current.nextFreeNanos();
+        double stored = current.storedPermits();
+        if (now > nextFree) {
+            // idle time turns into stored permits, which is what makes the bucket cold again
+            if (coolDownIntervalNanos > 0) {
+                stored = Math.min(maxPermits, stored + (now - nextFree) / coolDownIntervalNanos);
+            }
+            nextFree = now;
+        }
+        double fromStore = Math.min(1.0, stored);
+        double fresh = 1.0 - fromStore;
+        long cost = (long) (storedPermitsToWaitTime(stored, fromStore) + fresh * stableIntervalNanos);
+        return new State(nextFree + cost, stored - fromStore);
+    }
+
+    /**
+     * Time charged for taking {@code permits} from a store holding {@code stored}: the area under
+     * the interval curve, which is flat at the stable interval up to the threshold and rises
+     * linearly to the cold interval at {@code maxPermits}.
+     */
+    private double storedPermitsToWaitTime(double stored, double permits) {
+        double above = stored - thresholdPermits;
+        double nanos = 0;
+        if (above > 0) {
+            double taken = Math.min(above, permits);
+            double length = intervalAt(above) + intervalAt(above - taken);
+            nanos = taken * length / 2.0;
+            permits -= taken;
+        }
+        return nanos + stableIntervalNanos * permits;
+    }
+
+    private double intervalAt(double permitsAboveThreshold) {
+        return stableIntervalNanos + permitsAboveThreshold * slope;
+    }
+}
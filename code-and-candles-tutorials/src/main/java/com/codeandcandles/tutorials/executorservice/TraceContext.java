@@ -0,0 +1,84 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The trace a thread is currently working for: a trace id shared by every task of one request, and
+ * the id of the span (task) running on this thread.
+ *
+ * <p>
+ * The state lives in one small per-thread array, so switching context when a
+ * {@link TracingExecutorService} task starts and ends allocates nothing. A value of {@code 0} means
+ * "no trace".
+ * </p>
+ *
+ * <pre>
+ * try (TraceContext.Scope request = TraceContext.newTrace()) {
+ *     ioPool.submit(...);   // the task and everything it submits belong to this trace
+ * }
+ * </pre>
+ */
+public final class TraceContext {
+
+    static final int TRACE = 0;
+    static final int SPAN = 1;
+
+    private static final AtomicLong ids = new AtomicLong();
+    private static final ThreadLocal<long[]> current = ThreadLocal.withInitial(() -> new long[2]);
+
+    private TraceContext() {
+    }
+
+    /**
+     * Starts a new trace on the calling thread, with a root span. Closing the scope restores the
+     * previous context.
+     */
+    public static Scope newTrace() {
+        long[] state = current.get();
+        Scope scope = new Scope(state[TRACE], state[SPAN]);
+        long id = nextId();
+        state[TRACE] = id;
+        state[SPAN] = id;
+        return scope;
+    }
+
+    public static long currentTraceId() {
+        return current.get()[TRACE];
+    }
+
+    public static long currentSpanId() {
+        return current.get()[SPAN];
+    }
+
+    static long nextId() {
+        return ids.incrementAndGet();
+    }
+
+    /**
+     * The calling thread's {@code [traceId, spanId]} array, read and written directly by
+     * {@link TracingExecutorService} so a hop costs no allocation.
+     */
+    static long[] state() {
+        return current.get();
+    }
+
+    /**
+     * Restores the previous context when closed. Must be closed on the thread that opened it.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final long previousTrace;
+        private final long previousSpan;
+
+        private Scope(long previousTrace, long previousSpan) {
+            this.previousTrace = previousTrace;
+            this.previousSpan = previousSpan;
+        }
+
+        @Override
+        public void close() {
+            long[] state = current.get();
+            state[TRACE] = previousTrace;
+            state[SPAN] = previousSpan;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size ring buffer of task events, written by {@link TracingExecutorService} and dumped in
+ * the Chrome trace event format (open the file in {@code chrome://tracing} or
+ * <a href="https://ui.perfetto.dev">Perfetto</a>).
+ *
+ * <p>
+ * All storage is allocated up front: one {@code long[]} holding a fixed number of fields per slot,
+ * and two {@code String[]} for thread names. Recording a task claims a slot with one
+ * {@code getAndIncrement()} and then writes plain fields, so it takes no lock and allocates
+ * nothing. When the buffer is full the oldest events are overwritten.
+ * </p>
+ *
+ * <p>
+ * Each slot is a small seqlock: the writer marks the slot as being written, stores the fields and
+ * then publishes the slot's sequence number with release semantics. A reader keeps an event only if
+ * it sees the same published sequence number before and after copying it, so an event being
+ * overwritten while {@link #snapshot()} runs is skipped instead of being returned half-old,
+ * half-new.
+ * </p>
+ */
+public class TraceRecorder {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // field offsets inside a slot
+    private static final int SEQ = 0;
+    private static final int TRACE = 1;
+    private static final int SPAN = 2;
+    private static final int PARENT = 3;
+    private static final int SUBMIT = 4;
+    private static final int START = 5;
+    private static final int END = 6;
+    private static final int LABEL = 7;
+    private static final int SUBMITTER = 8;
+    private static final int WORKER = 9;
+    private static final int STRIDE = 10;
+
+    private static final long WRITING = -1;
+
+    /**
+     * One recorded task. Times are {@link System#nanoTime()} values.
+     */
+    public record Event(long traceId, long spanId, long parentSpanId, String pool,
+                        long submitNanos, long startNanos, long endNanos,
+                        long submitterThreadId, String submitterThread,
+                        long workerThreadId, String workerThread) {
+
+        public long queueNanos() {
+            return startNanos - submitNanos;
+        }
+
+        public long runNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    private final int mask;
+    private final long[] slots;
+    private final String[] submitterNames;
+    private final String[] workerNames;
+    private final AtomicLong cursor = new AtomicLong();
+    private final long epochNanos = System.nanoTime();
+    private volatile String[] labels = new String[0];
+
+    /**
+     * @param capacity number of events kept; rounded up to a power of two
+     */
+    public TraceRecorder(int capacity) {
+        if (capacity < 1 || capacity > (1 << 26)) {
+            throw new IllegalArgumentException("capacity must be in [1, 2^26]");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new long[size * STRIDE];
+        this.submitterNames = new String[size];
+        this.workerNames = new String[size];
+        for (int slot = 0; slot < size; slot++) {
+            slots[slot * STRIDE + SEQ] = WRITING;
+        }
+    }
+
+    /**
+     * Registers a pool name once, so events can refer to it by index.
+     */
+    synchronized int register(String label) {
+        String[] current = labels;
+        String[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = label;
+        labels = next;
+        return current.length;
+    }
+
+    void record(long traceId, long spanId, long parentSpanId, int label,
+                long submitNanos, long startNanos, long endNanos,
+                Thread submitter, Thread worker) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        int base = slot * STRIDE;
+
+        LONGS.setOpaque(slots, base + SEQ, WRITING);
+        VarHandle.storeStoreFence();
+        slots[base + TRACE] = traceId;
+        slots[base + SPAN] = spanId;
+        slots[base + PARENT] = parentSpanId;
+        slots[base + SUBMIT] = submitNanos;
+        slots[base + START] = startNanos;
+        slots[base + END] = endNanos;
+        slots[base + LABEL] = label;
+        slots[base + SUBMITTER] = submitter.threadId();
+        slots[base + WORKER] = worker.threadId();
+        submitterNames[slot] = submitter.getName();
+        workerNames[slot] = worker.getName();
+        LONGS.setRelease(slots, base + SEQ, sequence);
+    }
+
+    /**
+     * @return events recorded since creation, including overwritten ones
+     */
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+
+    /**
+     * @return events lost because the buffer wrapped around
+     */
+    public long getOverwrittenCount() {
+        return Math.max(0, cursor.get() - slots.length / STRIDE);
+    }
+
+    /**
+     * Copies the events currently in the buffer, oldest first. Safe to call while tasks are still
+     * being recorded.
+     */
+    public List<Event> snapshot() {
+        long end = cursor.get();
+        long begin = Math.max(0, end - (mask + 1));
+        String[] names = labels;
+        List<Event> events = new ArrayList<>((int) (end - begin));
+        for (long sequence = begin; sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+            int base = slot * STRIDE;
+            if ((long) LONGS.getAcquire(slots, base + SEQ) != sequence) {
+                continue;                                       // still being written, or overwritten
+            }
+            int label = (int) slots[base + LABEL];
+            Event event = new Event(slots[base + TRACE], slots[base + SPAN], slots[base + PARENT],
+                    label >= 0 && label < names.length ? names[label] : null,
+                    slots[base + SUBMIT], slots[base + START], slots[base + END],
+                    slots[base + SUBMITTER], submitterNames[slot],
+                    slots[base + WORKER], workerNames[slot]);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(slots, base + SEQ) == sequence) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    // ---------------------------------------------------------------------
+    // Chrome trace format
+    // ---------------------------------------------------------------------
+
+    public void writeChromeTrace(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeChromeTrace(out);
+        }
+    }
+
+    /**
+     * Writes the buffer as a Chrome trace. Each task becomes:
+     * <ul>
+     *     <li>a slice on its worker thread's row, named after the pool;</li>
+     *     <li>an async "queue" slice from submit to start, so queueing delay per hop is visible
+     *         even when many tasks wait at once;</li>
+     *     <li>a flow arrow from the submitting thread to the worker, which links the hops of one
+     *         trace across pools.</li>
+     * </ul>
+     */
+    public void writeChromeTrace(Appendable out) throws IOException {
+        List<Event> events = snapshot();
+        Map<Long, String> threads = new LinkedHashMap<>();
+        for (Event e : events) {
+            threads.putIfAbsent(e.submitterThreadId(), e.submitterThread());
+            threads.putIfAbsent(e.workerThreadId(), e.workerThread());
+        }
+
+        out.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        boolean first = true;
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            String name = thread.getValue().isEmpty() ? "thread-" + thread.getKey() : thread.getValue();
+            first = separator(out, first);
+            out.append(String.format(Locale.ROOT,
+                    "{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                    thread.getKey(), escape(name)));
+        }
+        for (Event e : events) {
+            String pool = escape(e.pool());
+            first = separator(out, first);
+            out.append(String.format(Locale.ROOT,
+                    "{\"ph\":\"X\",\"cat\":\"run\",\"name\":\"%s\",\"pid\":1,\"tid\":%d,\"ts\":%s,\"dur\":%s,"
+                            + "\"args\":{\"trace\":%d,\"span\":%d,\"parent\":%d,\"queued_us\":%s}}",
+                    pool, e.workerThreadId(), micros(e.startNanos() - epochNanos), micros(e.runNanos()),
+                    e.traceId(), e.spanId(), e.parentSpanId(), micros(e.queueNanos())));
+            out.append(String.format(Locale.ROOT,
+                    ",\n{\"ph\":\"b\",\"cat\":\"queue\",\"name\":\"%s queue\",\"id\":%d,\"pid\":1,\"tid\":%d,\"ts\":%s,"
+                            + "\"args\":{\"trace\":%d}}",
+                    pool, e.spanId(), e.submitterThreadId(), micros(e.submitNanos() - epochNanos), e.traceId()));
+            out.append(String.format(Locale.ROOT,
+                    ",\n{\"ph\":\"e\",\"cat\":\"queue\",\"name\":\"%s queue\",\"id\":%d,\"pid\":1,\"tid\":%d,\"ts\":%s}",
+                    pool, e.spanId(), e.submitterThreadId(), micros(e.startNanos() - epochNanos)));
+            out.append(String.format(Locale.ROOT,
+                    ",\n{\"ph\":\"s\",\"cat\":\"hop\",\"name\":\"hop\",\"id\":%d,\"pid\":1,\"tid\":%d,\"ts\":%s}",
+                    e.spanId(), e.submitterThreadId(), micros(e.submitNanos() - epochNanos)));
+            out.append(String.format(Locale.ROOT,
+                    ",\n{\"ph\":\"f\",\"bp\":\"e\",\"cat\":\"hop\",\"name\":\"hop\",\"id\":%d,\"pid\":1,\"tid\":%d,\"ts\":%s}",
+                    e.spanId(), e.workerThreadId(), micros(e.startNanos() - epochNanos)));
+        }
+        out.append("\n]}\n");
+    }
+
+    private static boolean separator(Appendable out, boolean first) throws IOException {
+        if (!first) {
+            out.append(",\n");
+        }
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows requests across the CPU and I/O pools of {@link CpuVsIoPoolsExample} with
+ * {@link TracingExecutorService}, then writes a Chrome trace.
+ *
+ * <p>
+ * Each of 16 requests makes three hops: fetch on the I/O pool, parse on a deliberately small CPU
+ * pool, store on the I/O pool. The stages are chained with {@code CompletableFuture}'s
+ * {@code *Async} methods, so each hop is submitted from inside the previous one and inherits its
+ * trace. The summary shows where requests waited: the I/O pool starts tasks almost at once, while
+ * parses queue behind the two CPU threads.
+ * </p>
+ *
+ * <p><strong>Sample Output:</strong></p>
+ * <pre>
+ * cpu-pool : tasks=16 avgQueue=108.60ms maxQueue=215.73ms avgRun=31.37ms
+ * io-pool  : tasks=32 avgQueue=0.44ms maxQueue=6.50ms avgRun=17.04ms
+ *
+ * trace 1:
+ *   io-pool   span=2   parent=1   queued=0.44ms ran=20.71ms on pool-2-thread-1
+ *   cpu-pool  span=33  parent=2   queued=0.47ms ran=35.84ms on pool-1-thread-1
+ *   io-pool   span=35  parent=33  queued=2.31ms ran=13.98ms on pool-2-thread-13
+ *
+ * wrote 48 events to target/executor-trace.json (open in chrome://tracing or ui.perfetto.dev)
+ * </pre>
+ *
+ * <p><strong>Usage:</strong></p>
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass="com.codeandcandles.tutorials.executorservice.TracingExample"
+ * </pre>
+ */
+public class TracingExample {
+
+    @SuppressWarnings("try") // the scope is only opened for its side effect on the current thread
+    public static void main(String[] args) throws InterruptedException, IOException {
+
+        TraceRecorder recorder = new TraceRecorder(4096);
+        ExecutorService cpuPool = new TracingExecutorService("cpu-pool", Executors.newFixedThreadPool(2), recorder);
+        ExecutorService ioPool = new TracingExecutorService("io-pool", Executors.newCachedThreadPool(), recorder);
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            try (TraceContext.Scope request = TraceContext.newTrace()) {
+                requests.add(CompletableFuture
+                        .supplyAsync(() -> fetch(20), ioPool)
+                        .thenApplyAsync(TracingExample::parse, cpuPool)
+                        .thenAcceptAsync(parsed -> fetch(10), ioPool));
+            }
+        }
+        requests.forEach(CompletableFuture::join);
+
+        cpuPool.shutdown();
+        ioPool.shutdown();
+        cpuPool.awaitTermination(5, TimeUnit.SECONDS);
+        ioPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        List<TraceRecorder.Event> events = recorder.snapshot();
+        printSummary(events);
+        printTrace(events, events.get(0).traceId());
+
+        Path file = Path.of(args.length > 0 ? args[0] : "target/executor-trace.json");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        recorder.writeChromeTrace(file);
+        System.out.println("wrote " + events.size() + " events to " + file
+                + " (open in chrome://tracing or ui.perfetto.dev)");
+    }
+
+    private static void printSummary(List<TraceRecorder.Event> events) {
+        Map<String, List<TraceRecorder.Event>> byPool = new TreeMap<>();
+        for (TraceRecorder.Event e : events) {
+            byPool.computeIfAbsent(e.pool(), k -> new ArrayList<>()).add(e);
+        }
+        byPool.forEach((pool, hops) -> System.out.printf("%-9s: tasks=%d avgQueue=%.2fms maxQueue=%.2fms avgRun=%.2fms%n",
+                pool, hops.size(),
+                hops.stream().mapToLong(TraceRecorder.Event::queueNanos).average().orElse(0) / 1e6,
+                hops.stream().mapToLong(TraceRecorder.Event::queueNanos).max().orElse(0) / 1e6,
+                hops.stream().mapToLong(TraceRecorder.Event::runNanos).average().orElse(0) / 1e6));
+    }
+
+    private static void printTrace(List<TraceRecorder.Event> events, long traceId) {
+        System.out.println();
+        System.out.println("trace " + traceId + ":");
+        events.stream()
+                .filter(e -> e.traceId() == traceId)
+                .sorted((a, b) -> Long.compare(a.startNanos(), b.startNanos()))
+                .forEach(e -> System.out.printf("  %-9s span=%-3d parent=%-3d queued=%.2fms ran=%.2fms on %s%n",
+                        e.pool(), e.spanId(), e.parentSpanId(), e.queueNanos() / 1e6, e.runNanos() / 1e6,
+                        e.workerThread()));
+        System.out.println();
+    }
+
+    private static String fetch(long millis) {
+        try {
+            Thread.sleep(millis); // simulate network or disk I/O
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "payload";
+    }
+
+    private static int parse(String payload) {
+        double x = 0;
+        for (int i = 0; i < 5_000_000; i++) {
+            x += Math.sqrt(i);
+        }
+        return payload.length() + (int) Math.signum(x);
+    }
+}
@@ -0,0 +1,117 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link ExecutorService} so that every task carries the submitter's
+ * {@link TraceContext} onto the worker thread and is recorded in a {@link TraceRecorder}.
+ *
+ * <p>
+ * Logging {@code Thread.currentThread().getName()}, as the other examples do, shows which worker ran
+ * a task but not which request it belonged to once work crosses pools. Here each task:
+ * </p>
+ * <ul>
+ *     <li>captures the trace id and the current span id (its parent) at {@code execute()};</li>
+ *     <li>runs on the worker under the same trace id and a fresh span id, so anything it submits
+ *         to another decorated pool becomes its child;</li>
+ *     <li>restores the worker's previous context afterwards, and records submit, start and end
+ *         times, which give the queueing delay of each hop.</li>
+ * </ul>
+ *
+ * <p>
+ * The only per-task allocation is the small wrapper that carries the captured context to the
+ * worker; switching context and recording do not allocate. A task submitted outside any trace
+ * starts a new trace of its own.
+ * </p>
+ */
+public class TracingExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final TraceRecorder recorder;
+    private final int label;
+
+    /**
+     * @param name     pool name shown in the trace, e.g. {@code "io-pool"}
+     * @param delegate pool that runs the tasks
+     * @param recorder buffer shared by every pool of the same trace
+     */
+    public TracingExecutorService(String name, ExecutorService delegate, TraceRecorder recorder) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.recorder = Objects.requireNonNull(recorder);
+        this.label = recorder.register(Objects.requireNonNull(name));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        long[] context = TraceContext.state();
+        delegate.execute(new TracedTask(command, context[TraceContext.TRACE], context[TraceContext.SPAN],
+                Thread.currentThread(), System.nanoTime()));
+    }
+
+    private final class TracedTask implements Runnable {
+        private final Runnable command;
+        private final long traceId;
+        private final long parentSpanId;
+        private final Thread submitter;
+        private final long submitNanos;
+
+        TracedTask(Runnable command, long traceId, long parentSpanId, Thread submitter, long submitNanos) {
+            this.command = command;
+            this.traceId = traceId;
+            this.parentSpanId = parentSpanId;
+            this.submitter = submitter;
+            this.submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            long spanId = TraceContext.nextId();
+            long trace = traceId != 0 ? traceId : spanId;
+
+            long[] context = TraceContext.state();
+            long previousTrace = context[TraceContext.TRACE];
+            long previousSpan = context[TraceContext.SPAN];
+            context[TraceContext.TRACE] = trace;
+            context[TraceContext.SPAN] = spanId;
+            try {
+                command.run();
+            } finally {
+                context[TraceContext.TRACE] = previousTrace;
+                context[TraceContext.SPAN] = previousSpan;
+                recorder.record(trace, spanId, parentSpanId, label,
+                        submitNanos, startNanos, System.nanoTime(), submitter, Thread.currentThread());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
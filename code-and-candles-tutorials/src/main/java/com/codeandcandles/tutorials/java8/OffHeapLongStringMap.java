@@ -0,0 +1,247 @@
+package com.codeandcandles.tutorials.java8;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A {@code long → String} map stored outside the Java heap, for large read-mostly lookups such as
+ * the user table in {@link OptionalUsageDemo}.
+ *
+ * <p>
+ * A {@code HashMap<Long, String>} costs about 100 bytes per entry on the heap: a node, a boxed
+ * key, a {@code String} and its {@code byte[]}. All of them are objects the GC has to trace. Here
+ * the whole map is two kinds of direct {@link ByteBuffer}s:
+ * </p>
+ * <ul>
+ *     <li><strong>table</strong> – open addressing with linear probing; a 16-byte slot holds the
+ *         raw {@code long} key and a reference to the value. Load factor at most 0.75.</li>
+ *     <li><strong>arena</strong> – values as UTF-8 bytes, appended one after another.</li>
+ * </ul>
+ * <p>
+ * Both are split into pages, since a single buffer cannot exceed 2 GB. Lookups take a primitive
+ * {@code long}, so nothing is boxed; only the returned {@code String} is allocated. That decode is
+ * the price of the smaller footprint: a hit costs more than handing back a {@code HashMap}'s
+ * existing {@code String}, while {@link #containsKey(long)} skips it.
+ * </p>
+ *
+ * <p>
+ * There is no removal. Replacing a value appends the new bytes and leaves the old ones in the
+ * arena ({@link #getWastedBytes()}). The memory is released when the map becomes unreachable and
+ * its buffers are collected, so size {@code -XX:MaxDirectMemorySize} for the peak, which during a
+ * resize includes the old and new table. The map is not thread-safe for writes; once built and
+ * safely published, concurrent {@code get} calls are fine because they only use absolute reads.
+ * </p>
+ */
+public final class OffHeapLongStringMap {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int TABLE_PAGE_SHIFT = 30;
+    private static final int TABLE_PAGE_BYTES = 1 << TABLE_PAGE_SHIFT;
+    private static final int MAX_ARENA_PAGE_BYTES = 1 << 26;
+    private static final int MAX_VALUE_BYTES = 1 << 22;
+    private static final int MAX_ARENA_PAGES = 1 << 16;
+    private static final long EMPTY = 0;
+
+    private ByteBuffer[] table;
+    private long capacity;                       // slots, a power of two
+    private long mask;
+    private long size;
+
+    private final int arenaPageBytes;
+    private ByteBuffer[] arena = new ByteBuffer[0];
+    private int arenaAt;                         // next free byte in the last arena page
+    private long arenaBytes;
+    private long wastedBytes;
+
+    public OffHeapLongStringMap() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSize entries that should fit without a resize
+     */
+    public OffHeapLongStringMap(long expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        long needed = Math.max(16, expectedSize * 4 / 3 + 1);
+        allocateTable(1L << (64 - Long.numberOfLeadingZeros(needed - 1)));
+        arenaPageBytes = (int) Math.min(MAX_ARENA_PAGE_BYTES, Math.max(4096, expectedSize * 16));
+    }
+
+    /**
+     * Associates {@code value} with {@code key}, replacing any previous value.
+     */
+    public void put(long key, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= MAX_VALUE_BYTES) {
+            throw new IllegalArgumentException("Value of " + bytes.length + " bytes exceeds " + MAX_VALUE_BYTES);
+        }
+        if ((size + 1) * 4 > capacity * 3) {
+            resize(capacity << 1);
+        }
+        long ref = append(bytes);
+        long slot = indexFor(key);
+        while (true) {
+            long current = refAt(slot);
+            if (current == EMPTY) {
+                setSlot(slot, key, ref);
+                size++;
+                return;
+            }
+            if (keyAt(slot) == key) {
+                wastedBytes += length(current);
+                setSlot(slot, key, ref);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public Optional<String> get(long key) {
+        long ref = find(key);
+        return ref == EMPTY ? Optional.empty() : Optional.of(decode(ref));
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) != EMPTY;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    /** Direct memory held by the table and the arena pages. */
+    public long getOffHeapBytes() {
+        return capacity * SLOT_BYTES + arenaBytes;
+    }
+
+    /** Bytes of replaced values still in the arena. */
+    public long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private long indexFor(long key) {
+        return mix(key) & mask;
+    }
+
+    /** The value reference stored for {@code key}, or {@link #EMPTY}. */
+    private long find(long key) {
+        long slot = indexFor(key);
+        while (true) {
+            long offset = slot * SLOT_BYTES;
+            ByteBuffer page = table[(int) (offset >>> TABLE_PAGE_SHIFT)];
+            int at = (int) offset & (TABLE_PAGE_BYTES - 1);
+            long ref = page.getLong(at + 8);
+            if (ref == EMPTY || page.getLong(at) == key) {
+                return ref;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long keyAt(long slot) {
+        long offset = slot * SLOT_BYTES;
+        return table[(int) (offset >>> TABLE_PAGE_SHIFT)].getLong((int) offset & (TABLE_PAGE_BYTES - 1));
+    }
+
+    private long refAt(long slot) {
+        long offset = slot * SLOT_BYTES + 8;
+        return table[(int) (offset >>> TABLE_PAGE_SHIFT)].getLong((int) offset & (TABLE_PAGE_BYTES - 1));
+    }
+
+    private void setSlot(long slot, long key, long ref) {
+        long offset = slot * SLOT_BYTES;
+        ByteBuffer page = table[(int) (offset >>> TABLE_PAGE_SHIFT)];
+        int at = (int) offset & (TABLE_PAGE_BYTES - 1);
+        page.putLong(at, key);
+        page.putLong(at + 8, ref);
+    }
+
+    private void allocateTable(long slots) {
+        long bytes = slots * SLOT_BYTES;
+        int pages = (int) ((bytes + TABLE_PAGE_BYTES - 1) / TABLE_PAGE_BYTES);
+        ByteBuffer[] allocated = new ByteBuffer[pages];
+        for (int i = 0; i < pages; i++) {
+            allocated[i] = ByteBuffer.allocateDirect((int) Math.min(TABLE_PAGE_BYTES, bytes - (long) i * TABLE_PAGE_BYTES));
+        }
+        table = allocated;
+        capacity = slots;
+        mask = slots - 1;
+    }
+
+    /** Rehashes every slot into a table of {@code slots}; the arena is left as it is. */
+    private void resize(long slots) {
+        ByteBuffer[] oldTable = table;
+        long oldCapacity = capacity;
+        allocateTable(slots);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            long offset = slot * SLOT_BYTES;
+            ByteBuffer page = oldTable[(int) (offset >>> TABLE_PAGE_SHIFT)];
+            int at = (int) offset & (TABLE_PAGE_BYTES - 1);
+            long ref = page.getLong(at + 8);
+            if (ref != EMPTY) {
+                long key = page.getLong(at);
+                long target = indexFor(key);
+                while (refAt(target) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                setSlot(target, key, ref);
+            }
+        }
+    }
+
+    /**
+     * Copies {@code bytes} into the arena and returns {@code (page << 48 | offset << 22 | length) + 1},
+     * so that {@code 0} stays free to mark an empty slot. A value never spans two pages, and a full
+     * page takes nothing more, not even an empty value: the end of a {@code MAX_ARENA_PAGE_BYTES}
+     * page does not fit the offset field and would spill into the page number.
+     */
+    private long append(byte[] bytes) {
+        int page = arena.length - 1;
+        int room = page < 0 ? 0 : arena[page].capacity() - arenaAt;
+        if (room == 0 || bytes.length > room) {
+            if (arena.length == MAX_ARENA_PAGES) {
+                throw new IllegalStateException("Arena is full");
+            }
+            page++;
+            int pageBytes = Math.max(arenaPageBytes, bytes.length);
+            arena = Arrays.copyOf(arena, page + 1);
+            arena[page] = ByteBuffer.allocateDirect(pageBytes);
+            arenaBytes += pageBytes;
+            arenaAt = 0;
+        }
+        arena[page].put(arenaAt, bytes);
+        long ref = (((long) page << 48) | ((long) arenaAt << 22) | bytes.length) + 1;
+        arenaAt += bytes.length;
+        return ref;
+    }
+
+    private String decode(long ref) {
+        long packed = ref - 1;
+        byte[] bytes = new byte[(int) (packed & (MAX_VALUE_BYTES - 1))];
+        arena[(int) (packed >>> 48)].get((int) (packed >>> 22) & (MAX_ARENA_PAGE_BYTES - 1), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int length(long ref) {
+        return (int) ((ref - 1) & (MAX_VALUE_BYTES - 1));
+    }
+
+    /** SplitMix64 finalizer: sequential ids would otherwise fill neighbouring slots. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,7 +1,5 @@
 package com.codeandcandles.tutorials.java8;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -9,10 +7,13 @@ import java.util.Optional;
  * - of / ofNullable / empty
  * - map / orElse / orElseGet / orElseThrow
  * - ifPresent
+ *
+ * The user table is an {@link OffHeapLongStringMap}: ids stay primitive longs and names live
+ * off-heap, and lookups already return Optional.
  */
 public class OptionalUsageDemo {
 
-    private static final Map<Long, String> USER_DB = new HashMap<>();
+    private static final OffHeapLongStringMap USER_DB = new OffHeapLongStringMap();
 
     static {
         USER_DB.put(1L, "Alex");
@@ -47,7 +48,7 @@ public class OptionalUsageDemo {
     /**
      * Simulates a repository method that returns Optional instead of null.
      */
-    private static Optional<String> findUserNameById(Long id) {
-        return Optional.ofNullable(USER_DB.get(id));
+    private static Optional<String> findUserNameById(long id) {
+        return USER_DB.get(id);
     }
 }
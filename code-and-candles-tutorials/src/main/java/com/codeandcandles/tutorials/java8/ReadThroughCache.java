@@ -0,0 +1,326 @@
+package com.codeandcandles.tutorials.java8;
+
+import com.codeandcandles.tutorials.executorservice.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A concurrent read-through cache for lookups that return {@code Optional}, such as
+ * {@code findUserNameById} in {@link OptionalUsageDemo} when it sits in front of a slow store.
+ *
+ * <ul>
+ *     <li><strong>Segmented LRU</strong> – new entries go to a probation segment; a second hit
+ *         promotes them to a protected segment holding 80% of the capacity. One-off keys from a
+ *         scan are evicted from probation without pushing out the frequently read ones.</li>
+ *     <li><strong>TTL</strong> – an entry is reloaded once it is older than {@code ttl}.</li>
+ *     <li><strong>Negative caching</strong> – an empty result is cached for {@code negativeTtl},
+ *         so repeated lookups of a missing id (the {@code orElseGet(() -> "Guest")} path) do not
+ *         reach the store every time.</li>
+ *     <li><strong>Request coalescing</strong> – concurrent misses on one key share a single load;
+ *         the other callers wait for its result.</li>
+ * </ul>
+ *
+ * <p>
+ * The cache is split into shards by key hash, each with its own lock, so readers of different
+ * keys rarely contend. Loads run outside the shard lock. If the loader throws, every waiting
+ * caller gets the exception and nothing is cached. An {@link #invalidate} that races with a load
+ * of the same key may be overwritten by that load's result.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class ReadThroughCache<K, V> {
+
+    private final Function<? super K, Optional<V>> loader;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Shard<K, V>[] shards;
+    private final ConcurrentHashMap<K, CompletableFuture<Optional<V>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LatencyHistogram loadNanos = new LatencyHistogram();
+
+    /**
+     * @param loader       reads the backing store; an empty result means the key does not exist
+     * @param maximumSize  entries kept, including negative ones
+     * @param ttl          how long a loaded value is served before it is reloaded
+     * @param negativeTtl  how long an empty result is served; {@link Duration#ZERO} disables
+     *                     negative caching
+     */
+    @SuppressWarnings("unchecked")
+    public ReadThroughCache(Function<? super K, Optional<V>> loader, int maximumSize,
+                            Duration ttl, Duration negativeTtl) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero() || negativeTtl.isNegative()) {
+            throw new IllegalArgumentException("ttl must be positive and negativeTtl not negative");
+        }
+        this.loader = Objects.requireNonNull(loader);
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+
+        int target = Math.min(Math.max(1, maximumSize / 64), 4 * Runtime.getRuntime().availableProcessors());
+        int count = Integer.highestOneBit(target);
+        this.shards = (Shard<K, V>[]) new Shard<?, ?>[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard<>(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached value for {@code key}, loading it on a miss or after expiry.
+     *
+     * <p>
+     * If the loader throws, the caller that ran the load gets the exception as is; callers that
+     * were waiting for that load get it wrapped in a {@link CompletionException}.
+     * </p>
+     */
+    public Optional<V> get(K key) {
+        Shard<K, V> shard = shardFor(key);
+        Entry<V> entry = shard.get(key, System.nanoTime(), this);
+        if (entry != null) {
+            if (entry.value.isPresent()) {
+                hits.increment();
+            } else {
+                negativeHits.increment();
+            }
+            return entry.value;
+        }
+        misses.increment();
+        return load(key, shard);
+    }
+
+    public void invalidate(K key) {
+        shardFor(key).remove(key);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Shard<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** Lookups answered by a cached empty result. */
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Misses that waited for another caller's load instead of loading themselves. */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /** Share of lookups, positive or negative, answered without a load. */
+    public double getHitRate() {
+        long answered = hits.sum() + negativeHits.sum();
+        long total = answered + misses.sum();
+        return total == 0 ? 0.0 : (double) answered / total;
+    }
+
+    /** Latency of loads, in nanoseconds. Coalesced waits are not included. */
+    public LatencyHistogram.Snapshot getLoadLatency() {
+        return loadNanos.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot loads = loadNanos.snapshot();
+        return String.format("hitRate=%.3f hits=%d negativeHits=%d misses=%d coalesced=%d evictions=%d "
+                        + "expirations=%d loads=%d loadP50=%dus loadP99=%dus",
+                getHitRate(), getHitCount(), getNegativeHitCount(), getMissCount(), getCoalescedCount(),
+                getEvictionCount(), getExpirationCount(), loads.getCount(),
+                loads.getValueAtPercentile(50) / 1000, loads.getValueAtPercentile(99) / 1000);
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private Shard<K, V> shardFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return shards[h & (shards.length - 1)];
+    }
+
+    /**
+     * Joins the load in flight for {@code key}, or starts one. The owner checks the cache again
+     * first: a load that finished between our miss and registering would otherwise run twice.
+     */
+    private Optional<V> load(K key, Shard<K, V> shard) {
+        CompletableFuture<Optional<V>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<V>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return running.join();
+        }
+        try {
+            Entry<V> entry = shard.get(key, System.nanoTime(), this);
+            Optional<V> value;
+            if (entry != null) {
+                value = entry.value;
+            } else {
+                long start = System.nanoTime();
+                try {
+                    value = Objects.requireNonNull(loader.apply(key), "loader returned null");
+                } catch (RuntimeException | Error e) {
+                    loadFailures.increment();
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+                long now = System.nanoTime();
+                loadNanos.record(now - start);
+                long ttl = value.isPresent() ? ttlNanos : negativeTtlNanos;
+                if (ttl > 0) {
+                    shard.put(key, new Entry<>(value, now + ttl), this);
+                }
+            }
+            mine.complete(value);
+            return value;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private record Entry<V>(Optional<V> value, long expiresAtNanos) {
+    }
+
+    /**
+     * One lock's worth of the cache: a probation and a protected segment, each an access-ordered
+     * {@link LinkedHashMap} whose first entry is the least recently used.
+     */
+    private static final class Shard<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+        private final int protectedCapacity;
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = capacity * 4 / 5;
+        }
+
+        /** The live entry for {@code key}, promoting it on a hit; {@code null} on a miss or expiry. */
+        Entry<V> get(K key, long now, ReadThroughCache<K, V> cache) {
+            lock.lock();
+            try {
+                Entry<V> entry = protectedSegment.get(key);
+                if (entry != null) {
+                    if (entry.expiresAtNanos - now <= 0) {
+                        protectedSegment.remove(key);
+                        cache.expirations.increment();
+                        return null;
+                    }
+                    return entry;
+                }
+                entry = probation.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.expiresAtNanos - now <= 0) {
+                    cache.expirations.increment();
+                    return null;
+                }
+                protectedSegment.put(key, entry);
+                if (protectedSegment.size() > protectedCapacity) {
+                    Map.Entry<K, Entry<V>> demoted = removeEldest(protectedSegment);
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, Entry<V> entry, ReadThroughCache<K, V> cache) {
+            lock.lock();
+            try {
+                if (protectedSegment.containsKey(key)) {
+                    protectedSegment.put(key, entry);
+                    return;
+                }
+                probation.put(key, entry);
+                while (probation.size() + protectedSegment.size() > capacity) {
+                    removeEldest(probation.isEmpty() ? protectedSegment : probation);
+                    cache.evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                if (protectedSegment.remove(key) == null) {
+                    probation.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return probation.size() + protectedSegment.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static <K, V> Map.Entry<K, Entry<V>> removeEldest(LinkedHashMap<K, Entry<V>> segment) {
+            Iterator<Map.Entry<K, Entry<V>>> it = segment.entrySet().iterator();
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            Map.Entry<K, Entry<V>> copy = Map.entry(eldest.getKey(), eldest.getValue());
+            it.remove();
+            return copy;
+        }
+    }
+}
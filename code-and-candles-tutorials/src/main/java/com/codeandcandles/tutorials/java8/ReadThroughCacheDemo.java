@@ -0,0 +1,79 @@
+package com.codeandcandles.tutorials.java8;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Demonstrates {@link ReadThroughCache} in front of a slow findUserNameById:
+ * - the OptionalUsageDemo lookups, with the missing user cached negatively
+ * - eight concurrent misses on one id coalesced into a single load
+ * - hit rate and metrics under a Zipfian key distribution
+ */
+public class ReadThroughCacheDemo {
+
+    private static final int USERS = 100_000;
+    private static final OffHeapLongStringMap USER_DB = new OffHeapLongStringMap(USERS);
+    private static final AtomicLong STORE_CALLS = new AtomicLong();
+
+    static {
+        USER_DB.put(1L, "Alex");
+        USER_DB.put(2L, "Bob");
+        for (long id = 3; id <= USERS; id++) {
+            USER_DB.put(id, "user" + id);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ReadThroughCache<Long, String> users = new ReadThroughCache<>(
+                ReadThroughCacheDemo::findUserNameById, 2_000, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+        // Same lookups as OptionalUsageDemo
+        System.out.println("User 1 upper: " + users.get(1L).map(String::toUpperCase).orElse("UNKNOWN"));
+        System.out.println("User 0: " + users.get(0L).orElseGet(() -> "Guest"));
+        System.out.println("User 0 again: " + users.get(0L).orElseGet(() -> "Guest"));
+        System.out.println("Store calls so far: " + STORE_CALLS.get());
+
+        // Concurrent misses on one id
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                users.get(42L);
+            });
+        }
+        long before = STORE_CALLS.get();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.println("8 concurrent lookups of user 42 -> store calls: " + (STORE_CALLS.get() - before)
+                + ", coalesced: " + users.getCoalescedCount());
+
+        // Zipfian traffic: 2,000 cached entries for 100,000 users
+        for (long id : ZipfianKeys.sample(100_000, USERS, 0.99, 7)) {
+            users.get(id);
+        }
+        System.out.println("Zipfian: " + users);
+        System.out.println("Cached entries: " + users.size() + ", store calls: " + STORE_CALLS.get());
+    }
+
+    /**
+     * The repository method, now behind a store that takes about 50 µs per call.
+     */
+    private static Optional<String> findUserNameById(long id) {
+        STORE_CALLS.incrementAndGet();
+        LockSupport.parkNanos(50_000);
+        return USER_DB.get(id);
+    }
+}
@@ -0,0 +1,40 @@
+package com.codeandcandles.tutorials.java8;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Key sequences where the {@code k}-th most popular of {@code items} keys is drawn with probability
+ * proportional to {@code 1 / k^skew}, the usual model of user and cache traffic. With the common
+ * skew of 0.99, the top 1% of keys get roughly half of all requests.
+ *
+ * <p>
+ * Sampling inverts a precomputed cumulative distribution by binary search, so building costs
+ * {@code 8 * items} bytes and each key {@code O(log items)}. Key {@code 1} is the most popular;
+ * ranks are not shuffled.
+ * </p>
+ */
+final class ZipfianKeys {
+
+    private ZipfianKeys() {
+    }
+
+    /**
+     * {@code count} keys in {@code [1, items]}.
+     */
+    static long[] sample(int count, int items, double skew, long seed) {
+        double[] cumulative = new double[items];
+        double sum = 0;
+        for (int k = 1; k <= items; k++) {
+            sum += 1.0 / Math.pow(k, skew);
+            cumulative[k - 1] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            keys[i] = 1 + (index >= 0 ? index : Math.min(-index - 1, items - 1));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,165 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes result records to a file through one large direct buffer and a {@link FileChannel}.
+ *
+ * <p>
+ * The counterpart of {@link MappedRecordSpliterator}: records arrive as {@link ByteBuffer} slices
+ * or as text, and reach the disk in writes of {@code bufferSize} bytes. Because the buffer is
+ * direct, the channel writes from it without the extra copy into a temporary native buffer that a
+ * heap buffer needs. Text is encoded as UTF-8 straight into the buffer.
+ * </p>
+ *
+ * <p>
+ * Methods are synchronized, so a parallel {@code forEach} can write to one sink. Each record is
+ * written whole, but in no particular order; use {@code forEachOrdered} to keep input order.
+ * </p>
+ */
+public final class BufferedChannelSink implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final byte delimiter;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private long records;
+    private long bytesWritten;
+    private long writes;
+
+    public BufferedChannelSink(FileChannel channel, int bufferSize, byte delimiter) {
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("bufferSize must be at least 64 bytes");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Creates or truncates {@code file}, with a 1 MB buffer and newline-terminated records.
+     */
+    public static BufferedChannelSink create(Path file) throws IOException {
+        return new BufferedChannelSink(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 20, (byte) '\n');
+    }
+
+    /**
+     * Writes the remaining bytes of {@code record} and a delimiter. The record's position is not
+     * changed.
+     */
+    public synchronized void write(ByteBuffer record) throws IOException {
+        ByteBuffer bytes = record.duplicate();
+        if (bytes.remaining() + 1 > buffer.remaining()) {
+            drain();
+        }
+        if (bytes.remaining() + 1 > buffer.capacity()) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            writes++;
+            bytesWritten += record.remaining();
+        } else {
+            buffer.put(bytes);
+        }
+        endRecord();
+    }
+
+    /**
+     * Writes {@code line} as UTF-8 and a delimiter.
+     */
+    public synchronized void write(CharSequence line) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            drain();
+        }
+        checkUnderflow(result);
+        while ((result = encoder.flush(buffer)).isOverflow()) {
+            drain();
+        }
+        checkUnderflow(result);
+        endRecord();
+    }
+
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes what is buffered, forces it to the device and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            drain();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Number of channel writes: one per buffer drain, plus one per record larger than the buffer. */
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private void endRecord() throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(delimiter);
+        records++;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            bytesWritten += buffer.remaining();
+            writes++;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private static void checkUnderflow(CoderResult result) throws IOException {
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link Spliterator.OfInt}s over an {@code int[]} or an off-heap {@link IntBuffer} that only split
+ * on cache-line boundaries.
+ *
+ * <p>
+ * A cache line is 64 bytes, or 16 ints. The JDK's array spliterator halves its range exactly, so two
+ * neighbouring chunks of a parallel stream can share a line at their edge. These spliterators round
+ * every split point down to a multiple of 16 elements and never split off less than one line. For a
+ * buffer from {@link #allocateAligned(int)}, element 0 sits on a line boundary, so every chunk covers
+ * whole lines. Java does not expose where an {@code int[]} starts in memory, so for arrays the
+ * rounding is relative to element 0.
+ * </p>
+ *
+ * <p>
+ * Leaves are processed with a plain indexed loop over primitives. Nothing is boxed, and the only
+ * allocations are the spliterators created by splitting.
+ * </p>
+ */
+public final class CacheLineSpliterators {
+
+    static final int CACHE_LINE_BYTES = 64;
+    static final int INTS_PER_LINE = CACHE_LINE_BYTES / Integer.BYTES;
+
+    private static final int CHARACTERISTICS =
+            Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+    private CacheLineSpliterators() {
+    }
+
+    public static IntStream stream(int[] data, boolean parallel) {
+        return StreamSupport.intStream(new ArraySpliterator(data, 0, data.length), parallel);
+    }
+
+    public static IntStream stream(IntBuffer data, boolean parallel) {
+        return StreamSupport.intStream(new BufferSpliterator(data, data.position(), data.limit()), parallel);
+    }
+
+    /**
+     * Allocates a native-order, off-heap buffer of {@code size} ints whose first element starts a
+     * cache line.
+     */
+    public static IntBuffer allocateAligned(int size) {
+        return ByteBuffer.allocateDirect(size * Integer.BYTES + CACHE_LINE_BYTES)
+                .alignedSlice(CACHE_LINE_BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer()
+                .limit(size);
+    }
+
+    /**
+     * Midpoint of {@code [origin, fence)} rounded down to a multiple of {@link #INTS_PER_LINE}, or
+     * {@code -1} if the range is too short to leave a full line on both sides.
+     */
+    static int splitPoint(int origin, int fence) {
+        if (fence - origin < 2 * INTS_PER_LINE) {
+            return -1;
+        }
+        int mid = (origin + (fence - origin) / 2) & -INTS_PER_LINE;
+        return mid <= origin ? -1 : mid;
+    }
+
+    static final class ArraySpliterator implements Spliterator.OfInt {
+        private final int[] data;
+        private int index;
+        private final int fence;
+
+        ArraySpliterator(int[] data, int origin, int fence) {
+            this.data = data;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int mid = splitPoint(index, fence);
+            if (mid < 0) {
+                return null;
+            }
+            ArraySpliterator prefix = new ArraySpliterator(data, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int[] a = data;
+            int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(a[i]);
+            }
+            index = end;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(data[index++]);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    static final class BufferSpliterator implements Spliterator.OfInt {
+        private final IntBuffer data;
+        private int index;
+        private final int fence;
+
+        BufferSpliterator(IntBuffer data, int origin, int fence) {
+            this.data = data;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int mid = splitPoint(index, fence);
+            if (mid < 0) {
+                return null;
+            }
+            BufferSpliterator prefix = new BufferSpliterator(data, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            IntBuffer b = data;
+            int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(b.get(i));    // absolute get: no shared position between threads
+            }
+            index = end;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(data.get(index++));
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+}
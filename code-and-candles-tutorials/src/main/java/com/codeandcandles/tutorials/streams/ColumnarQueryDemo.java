@@ -0,0 +1,53 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the {@link FilterAndMapDemo} and {@link GroupByDemo} queries on 1M rows, once over the
+ * object lists and once over a {@link ColumnarTable}, and checks that both give the same answer.
+ */
+public class ColumnarQueryDemo {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Legal", "Support"};
+
+    public static void main(String[] args) {
+        List<FilterAndMapDemo.User> users = new ArrayList<>();
+        List<GroupByDemo.Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            users.add(new FilterAndMapDemo.User("user" + i, "user" + i + "@example.com", i % 3 != 0));
+            employees.add(new GroupByDemo.Employee("emp" + i, DEPARTMENTS[i % DEPARTMENTS.length]));
+        }
+        ColumnarTable userTable = ColumnarTable.ofUsers(users);
+        ColumnarTable employeeTable = ColumnarTable.ofEmployees(employees);
+        System.out.println("User columns (MB): " + userTable.getColumnBytes() / (1024 * 1024));
+
+        long startTime = System.currentTimeMillis();
+        List<String> activeEmails = users.stream()
+                .filter(user -> user.isActive)
+                .map(user -> user.email)
+                .collect(Collectors.toList());
+        long objectsTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        List<String> columnarEmails = userTable.query()
+                .whereTrue("isActive")
+                .project("email");
+        long columnarTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Active emails: " + activeEmails.size() + " (objects, " + objectsTime + " ms), "
+                + columnarEmails.size() + " (columnar, " + columnarTime + " ms), equal: "
+                + activeEmails.equals(columnarEmails));
+
+        Map<String, Long> byDept = employees.stream()
+                .collect(Collectors.groupingBy(emp -> emp.department, Collectors.counting()));
+        Map<String, Long> columnarByDept = employeeTable.query().countBy("department");
+        System.out.println("Head count: " + new TreeMap<>(columnarByDept) + ", equal: " + byDept.equals(columnarByDept));
+
+        long activeUser43 = userTable.query().whereTrue("isActive").whereEquals("name", "user43").count();
+        System.out.println("Active users named user43: " + activeUser43);
+    }
+}
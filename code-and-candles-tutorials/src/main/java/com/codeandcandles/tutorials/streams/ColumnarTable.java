@@ -0,0 +1,193 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A struct-of-arrays copy of {@link FilterAndMapDemo.User} or {@link GroupByDemo.Employee} rows,
+ * with a small query API whose operators are tight loops over primitive arrays.
+ *
+ * <p>
+ * A {@code List<User>} scan follows one reference per row to a {@code User}, and another to its
+ * {@code email}, spread across the heap. Here each field is its own array: boolean fields are a
+ * {@link BitSet} (1 bit per row), and string fields are a {@link DictionaryColumn} (4 bytes per
+ * row, each distinct value stored once). A query touches only the columns it uses.
+ * </p>
+ *
+ * <pre>
+ * List&lt;String&gt; activeEmails = users.query()
+ *         .whereTrue("isActive")
+ *         .project("email");
+ *
+ * Map&lt;String, Long&gt; headCount = employees.query().countBy("department");
+ * </pre>
+ *
+ * <p>
+ * A {@link Query} is a {@link BitSet} of selected rows. Filters AND into it; {@code project},
+ * {@code count} and {@code countBy} walk its set bits. Tables are built once and then only read:
+ * the factories {@link DictionaryColumn#seal() seal} every string column before returning.
+ * </p>
+ */
+public final class ColumnarTable {
+
+    private final Map<String, DictionaryColumn> stringColumns = new LinkedHashMap<>();
+    private final Map<String, BitSet> booleanColumns = new LinkedHashMap<>();
+    private int rows;
+
+    private ColumnarTable(List<String> stringNames, List<String> booleanNames) {
+        stringNames.forEach(n -> stringColumns.put(n, new DictionaryColumn(n)));
+        booleanNames.forEach(n -> booleanColumns.put(n, new BitSet()));
+    }
+
+    public static ColumnarTable ofUsers(List<FilterAndMapDemo.User> users) {
+        ColumnarTable table = new ColumnarTable(List.of("name", "email"), List.of("isActive"));
+        DictionaryColumn name = table.stringColumn("name");
+        DictionaryColumn email = table.stringColumn("email");
+        BitSet active = table.booleanColumn("isActive");
+        for (FilterAndMapDemo.User user : users) {
+            name.append(user.name);
+            email.append(user.email);
+            active.set(table.rows++, user.isActive);
+        }
+        table.seal();
+        return table;
+    }
+
+    public static ColumnarTable ofEmployees(List<GroupByDemo.Employee> employees) {
+        ColumnarTable table = new ColumnarTable(List.of("name", "department"), List.of());
+        DictionaryColumn name = table.stringColumn("name");
+        DictionaryColumn department = table.stringColumn("department");
+        for (GroupByDemo.Employee employee : employees) {
+            name.append(employee.name);
+            department.append(employee.department);
+            table.rows++;
+        }
+        table.seal();
+        return table;
+    }
+
+    private void seal() {
+        stringColumns.values().forEach(DictionaryColumn::seal);
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public DictionaryColumn stringColumn(String name) {
+        DictionaryColumn column = stringColumns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No string column " + name + " in " + stringColumns.keySet());
+        }
+        return column;
+    }
+
+    private BitSet booleanColumn(String name) {
+        BitSet column = booleanColumns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No boolean column " + name + " in " + booleanColumns.keySet());
+        }
+        return column;
+    }
+
+    /**
+     * @return approximate bytes held by all columns
+     */
+    public long getColumnBytes() {
+        long bytes = 0;
+        for (DictionaryColumn column : stringColumns.values()) {
+            bytes += column.getColumnBytes();
+        }
+        for (BitSet column : booleanColumns.values()) {
+            bytes += column.size() / 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * Starts a query over every row.
+     */
+    public Query query() {
+        BitSet all = new BitSet(rows);
+        all.set(0, rows);
+        return new Query(all);
+    }
+
+    /**
+     * A selection of rows, narrowed by filters and read by terminal operations.
+     */
+    public final class Query {
+        private final BitSet selected;
+
+        private Query(BitSet selected) {
+            this.selected = selected;
+        }
+
+        public Query whereTrue(String column) {
+            selected.and(booleanColumn(column));
+            return this;
+        }
+
+        public Query whereFalse(String column) {
+            selected.andNot(booleanColumn(column));
+            return this;
+        }
+
+        public Query whereEquals(String column, String value) {
+            DictionaryColumn dictionary = stringColumn(column);
+            int code = dictionary.codeOf(value);
+            if (code < 0) {
+                selected.clear();
+                return this;
+            }
+            int[] codes = dictionary.codes();
+            BitSet matches = new BitSet(rows);
+            for (int row = 0; row < rows; row++) {
+                if (codes[row] == code) {
+                    matches.set(row);
+                }
+            }
+            selected.and(matches);
+            return this;
+        }
+
+        public long count() {
+            return selected.cardinality();
+        }
+
+        /**
+         * @return the values of {@code column} for the selected rows, in row order
+         */
+        public List<String> project(String column) {
+            DictionaryColumn dictionary = stringColumn(column);
+            List<String> values = new ArrayList<>(selected.cardinality());
+            for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+                values.add(dictionary.get(row));
+            }
+            return values;
+        }
+
+        /**
+         * Counts the selected rows per value of {@code column}, in one pass over its codes.
+         */
+        public Map<String, Long> countBy(String column) {
+            DictionaryColumn dictionary = stringColumn(column);
+            int[] codes = dictionary.codes();
+            long[] counts = new long[dictionary.getDistinctCount()];
+            for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+                counts[codes[row]]++;
+            }
+            Map<String, Long> result = HashMap.newHashMap(counts.length);
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.put(dictionary.decode(code), counts[code]);
+                }
+            }
+            return result;
+        }
+    }
+}
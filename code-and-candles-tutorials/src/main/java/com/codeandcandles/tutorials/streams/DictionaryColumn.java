@@ -0,0 +1,193 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A dictionary-encoded string column: one {@code int} code per row, and each distinct value stored
+ * once as UTF-8 in a shared byte arena.
+ *
+ * <p>
+ * Filters compare codes, so a scan for {@code department == "HR"} reads 4 bytes per row from one
+ * contiguous array instead of following a reference to a {@code String} per row. A value is only
+ * turned back into a {@code String} when it is projected. Low-cardinality columns (departments)
+ * cache their decoded values; high-cardinality ones (emails) decode on demand.
+ * </p>
+ *
+ * <p>
+ * While the column is being built, a {@code HashMap<String, Integer>} maps each value to its code,
+ * keeping every distinct {@code String} alive. {@link #seal()} ends the build: it drops the map,
+ * trims the arrays, and replaces the map with an open-addressing {@code int[]} table of codes
+ * keyed by the hash of the UTF-8 bytes, about 8 bytes per distinct value. {@link #codeOf(String)}
+ * keeps working on top of it; {@link #append(String)} is no longer allowed.
+ * </p>
+ */
+public final class DictionaryColumn {
+
+    private static final int CACHE_LIMIT = 4096;
+    /** HashMap node, table slot, boxed code and key {@code String}, without its characters. */
+    private static final int DICTIONARY_BYTES_PER_VALUE = 96;
+
+    private final String name;
+    private int[] codes = new int[16];
+    private int rows;
+
+    private HashMap<String, Integer> dictionary = new HashMap<>();     // null once sealed
+    private int[] lookup;                       // after seal(): codes by hash, -1 for an empty slot
+    private int distinct;
+    private byte[] arena = new byte[256];
+    private int arenaSize;
+    private int[] offsets = new int[17];        // value i spans offsets[i] .. offsets[i + 1]
+    private String[] decoded;
+
+    public DictionaryColumn(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void append(String value) {
+        if (dictionary == null) {
+            throw new IllegalStateException("Column " + name + " is sealed");
+        }
+        if (rows == codes.length) {
+            codes = Arrays.copyOf(codes, rows * 2);
+        }
+        codes[rows++] = encode(value);
+    }
+
+    private int encode(String value) {
+        Integer code = dictionary.get(value);
+        if (code != null) {
+            return code;
+        }
+        int next = distinct;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if ((long) arenaSize + bytes.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Column " + name + " holds more than 2 GB of distinct values");
+        }
+        if (arenaSize + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) arena.length * 2, (long) arenaSize + bytes.length)));
+        }
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        arenaSize += bytes.length;
+        if (next + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[next + 1] = arenaSize;
+        dictionary.put(value, next);
+        distinct++;
+        decoded = null;
+        return next;
+    }
+
+    /**
+     * Ends the build: drops the value-to-code map and trims the arrays to their content. Calling it
+     * again has no effect.
+     */
+    public void seal() {
+        if (dictionary == null) {
+            return;
+        }
+        codes = Arrays.copyOf(codes, rows);
+        arena = Arrays.copyOf(arena, arenaSize);
+        offsets = Arrays.copyOf(offsets, distinct + 1);
+
+        int[] table = new int[Integer.highestOneBit(Math.max(1, distinct * 2 - 1)) << 1];    // load <= 0.5
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int code = 0; code < distinct; code++) {
+            int slot = hash(arena, offsets[code], offsets[code + 1]) & mask;
+            while (table[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = code;
+        }
+        lookup = table;
+        dictionary = null;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        h *= 0x9E3779B9;                        // spread into the low bits the mask keeps
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int getDistinctCount() {
+        return distinct;
+    }
+
+    /**
+     * @return the code of {@code value}, or {@code -1} if no row holds it
+     */
+    public int codeOf(String value) {
+        if (dictionary != null) {
+            return dictionary.getOrDefault(value, -1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int mask = lookup.length - 1;
+        for (int slot = hash(bytes, 0, bytes.length) & mask; ; slot = (slot + 1) & mask) {
+            int code = lookup[slot];
+            if (code < 0 || Arrays.equals(arena, offsets[code], offsets[code + 1], bytes, 0, bytes.length)) {
+                return code;
+            }
+        }
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    /**
+     * The backing code array; only the first {@link #size()} entries are rows. Not a copy.
+     */
+    int[] codes() {
+        return codes;
+    }
+
+    public String decode(int code) {
+        String[] cache = decoded;
+        if (cache == null && distinct <= CACHE_LIMIT) {
+            cache = new String[distinct];
+            decoded = cache;
+        }
+        if (cache != null && code < cache.length) {
+            String value = cache[code];
+            if (value == null) {
+                value = cache[code] = utf8(code);
+            }
+            return value;
+        }
+        return utf8(code);
+    }
+
+    private String utf8(int code) {
+        return new String(arena, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+    }
+
+    public String get(int row) {
+        return decode(codes[row]);
+    }
+
+    /**
+     * @return bytes held by the codes, the value arena and the code lookup; before {@link #seal()}
+     *         an estimate for the build-time map is included
+     */
+    public long getColumnBytes() {
+        long bytes = (long) codes.length * Integer.BYTES + arena.length + (long) offsets.length * Integer.BYTES;
+        return dictionary != null
+                ? bytes + (long) distinct * DICTIONARY_BYTES_PER_VALUE
+                : bytes + (long) lookup.length * Integer.BYTES;
+    }
+}
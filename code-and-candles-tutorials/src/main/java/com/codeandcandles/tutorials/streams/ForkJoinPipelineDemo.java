@@ -0,0 +1,73 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Demonstrates isolating parallel streams with {@link ForkJoinPipelineRunner}.
+ * Three heavy "report" queries run on an analytics runner that allows one pipeline at a time,
+ * while 20 small "lookup" queries run on their own runner, so they never queue behind a report
+ * in the common pool. Prints the worker threads each kind used and the per-pipeline metrics.
+ */
+public class ForkJoinPipelineDemo {
+
+    public static void main(String[] args) throws Exception {
+        Set<String> reportThreads = ConcurrentHashMap.newKeySet();
+        Set<String> lookupThreads = ConcurrentHashMap.newKeySet();
+
+        try (ForkJoinPipelineRunner analytics = new ForkJoinPipelineRunner("analytics", 2, 1);
+             ForkJoinPipelineRunner interactive = new ForkJoinPipelineRunner("interactive", 2, 4)) {
+
+            ExecutorService callers = Executors.newFixedThreadPool(4);
+            List<Future<Long>> reports = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                reports.add(callers.submit(() -> analytics.run("report", () -> IntStream.rangeClosed(1, 20_000_000)
+                        .parallel()
+                        .peek(n -> reportThreads.add(Thread.currentThread().getName()))
+                        .map(n -> n * n)
+                        .filter(square -> square % 10 == 0)
+                        .count())));
+            }
+
+            long lookups = 0;
+            for (int i = 0; i < 20; i++) {
+                lookups += interactive.run("lookup", () -> IntStream.rangeClosed(1, 100_000)
+                        .parallel()
+                        .peek(n -> lookupThreads.add(Thread.currentThread().getName()))
+                        .filter(n -> n % 7 == 0)
+                        .count());
+            }
+
+            for (Future<Long> report : reports) {
+                System.out.println("Report result: " + report.get());
+            }
+            System.out.println("Lookup results: " + lookups);
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+
+            System.out.println("Report threads: " + new TreeSet<>(reportThreads));
+            System.out.println("Lookup threads: " + new TreeSet<>(lookupThreads));
+            print(analytics);
+            print(interactive);
+        }
+    }
+
+    private static void print(ForkJoinPipelineRunner runner) {
+        System.out.println(runner);
+        runner.getMetrics().forEach((pipeline, metrics) -> System.out.printf(
+                "  %s: runs=%d failures=%d wait p50=%dms max=%dms run p50=%dms max=%dms%n",
+                pipeline, metrics.runs(), metrics.failures(),
+                TimeUnit.NANOSECONDS.toMillis(metrics.waitNanos().getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMillis(metrics.waitNanos().getMax()),
+                TimeUnit.NANOSECONDS.toMillis(metrics.runNanos().getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMillis(metrics.runNanos().getMax())));
+    }
+}
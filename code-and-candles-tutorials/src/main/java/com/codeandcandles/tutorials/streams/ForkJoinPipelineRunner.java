@@ -0,0 +1,201 @@
+package com.codeandcandles.tutorials.streams;
+
+import com.codeandcandles.tutorials.executorservice.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs parallel stream pipelines in a dedicated {@link ForkJoinPool} instead of the common pool.
+ *
+ * <p>
+ * {@code parallelStream()}, as in {@link ParallelStreamDemo}, runs on
+ * {@link ForkJoinPool#commonPool()}, shared with every other parallel stream and every
+ * {@code CompletableFuture.supplyAsync()} without an executor. A parallel stream whose terminal
+ * operation is started from inside a {@code ForkJoinPool} task runs in that pool instead. This class
+ * relies on that. Each runner owns a pool of the chosen parallelism, so analytical queries can be
+ * kept away from latency-critical ones.
+ * </p>
+ *
+ * <ul>
+ *     <li><strong>parallelism</strong> – worker threads of the runner's pool, named
+ *         {@code <name>-<index>}.</li>
+ *     <li><strong>concurrency cap</strong> – at most {@code maxConcurrentPipelines} pipelines run
+ *         at once; further callers wait in FIFO order. Each pipeline still splits across all
+ *         workers, so the cap trades throughput for the latency of each query.</li>
+ *     <li><strong>metrics</strong> – per pipeline name: runs, failures, and histograms of the
+ *         time spent waiting for a slot and running.</li>
+ * </ul>
+ *
+ * <p>
+ * The stream must be built <em>inside</em> the supplier, because the pool is chosen when the
+ * terminal operation starts. Do not call {@code run} from one of the runner's own pipelines: the
+ * nested call could wait for a slot held by its caller.
+ * </p>
+ *
+ * <pre>
+ * long count = analytics.run("squares", () -&gt; numbers.parallelStream()
+ *         .filter(n -&gt; n % 10 == 0)
+ *         .count());
+ * </pre>
+ */
+public class ForkJoinPipelineRunner implements AutoCloseable {
+
+    /**
+     * Metrics of one pipeline name. {@code failures} counts pipelines that threw as well as calls
+     * that gave up waiting for a slot. Times are in nanoseconds.
+     */
+    public record Metrics(long runs, long failures, LatencyHistogram.Snapshot waitNanos,
+                          LatencyHistogram.Snapshot runNanos) {
+    }
+
+    private static final class Recorder {
+        final LongAdder runs = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LatencyHistogram wait = new LatencyHistogram();
+        final LatencyHistogram run = new LatencyHistogram();
+    }
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final Semaphore slots;
+    private final int maxConcurrentPipelines;
+    private final ConcurrentHashMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * @param name                   prefix of the worker thread names
+     * @param parallelism            worker threads of the pool
+     * @param maxConcurrentPipelines pipelines allowed to run at once
+     */
+    public ForkJoinPipelineRunner(String name, int parallelism, int maxConcurrentPipelines) {
+        if (maxConcurrentPipelines < 1) {
+            throw new IllegalArgumentException("maxConcurrentPipelines must be positive");
+        }
+        this.name = name;
+        this.maxConcurrentPipelines = maxConcurrentPipelines;
+        this.slots = new Semaphore(maxConcurrentPipelines, true);
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName(name + "-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * Runs {@code pipeline} in this runner's pool, waiting as long as needed for a free slot.
+     *
+     * @param pipelineName name the metrics are recorded under
+     * @return the pipeline's result; its exceptions are rethrown as they are
+     */
+    public <T> T run(String pipelineName, Supplier<T> pipeline) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        slots.acquire();
+        return runWithSlot(pipelineName, pipeline, waitStart);
+    }
+
+    /**
+     * Like {@link #run(String, Supplier)}, but gives up if no slot frees within {@code maxWait}.
+     *
+     * @throws RejectedExecutionException if the runner stayed full for {@code maxWait}
+     */
+    public <T> T run(String pipelineName, Duration maxWait, Supplier<T> pipeline) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        if (!slots.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+            recorder(pipelineName).failures.increment();
+            throw new RejectedExecutionException(name + ": no pipeline slot within " + maxWait);
+        }
+        return runWithSlot(pipelineName, pipeline, waitStart);
+    }
+
+    private <T> T runWithSlot(String pipelineName, Supplier<T> pipeline, long waitStart) {
+        Recorder recorder = recorder(pipelineName);
+        long start = System.nanoTime();
+        recorder.wait.record(start - waitStart);
+        try {
+            return pool.invoke(ForkJoinTask.adapt(pipeline::get));
+        } catch (RuntimeException | Error e) {
+            recorder.failures.increment();
+            throw e;
+        } finally {
+            recorder.run.record(System.nanoTime() - start);
+            recorder.runs.increment();
+            slots.release();
+        }
+    }
+
+    private Recorder recorder(String pipelineName) {
+        return recorders.computeIfAbsent(pipelineName, k -> new Recorder());
+    }
+
+    // ---------------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------------
+
+    public Metrics getMetrics(String pipelineName) {
+        Recorder recorder = recorder(pipelineName);
+        return new Metrics(recorder.runs.sum(), recorder.failures.sum(),
+                recorder.wait.snapshot(), recorder.run.snapshot());
+    }
+
+    /**
+     * @return metrics of every pipeline name seen so far, sorted by name
+     */
+    public Map<String, Metrics> getMetrics() {
+        Map<String, Metrics> all = new TreeMap<>();
+        recorders.keySet().forEach(pipelineName -> all.put(pipelineName, getMetrics(pipelineName)));
+        return all;
+    }
+
+    public int getRunningCount() {
+        return maxConcurrentPipelines - slots.availablePermits();
+    }
+
+    public int getWaitingCount() {
+        return slots.getQueueLength();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[parallelism=%d, running=%d/%d, waiting=%d]",
+                name, getParallelism(), getRunningCount(), maxConcurrentPipelines, getWaitingCount());
+    }
+
+    /**
+     * Shuts the pool down and waits up to a minute for running pipelines to finish. After that, or
+     * if the calling thread is interrupted, the remaining tasks are cancelled with
+     * {@link ForkJoinPool#shutdownNow()}.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} once {@link #close()} has completed and every worker has exited
+     */
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+}
@@ -0,0 +1,35 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.Arrays;
+
+/**
+ * Demonstrates {@link IntPipeline}: the {@link StreamsPipelineDemo} pipeline fused into one loop.
+ * The squared evens and their sum come out of a single pass with {@code tee}, instead of
+ * collecting a list and streaming it again.
+ */
+public class FusedPipelineDemo {
+
+    public static void main(String[] args) {
+        IntPipeline squares = IntPipeline.rangeClosed(1, 10)
+                .filter(n -> n % 2 == 0)
+                .map(n -> n * n);
+
+        // Collected view and aggregate in one pass
+        IntPipeline.Tee squaredEvens = squares.tee(0, Integer::sum);
+        System.out.println("Squared Even Numbers: " + Arrays.toString(squaredEvens.collected()));
+        System.out.println("Sum of Squared Evens: " + squaredEvens.reduced());
+
+        // Each terminal alone is also a single loop
+        System.out.println("Count: " + squares.count());
+        System.out.println("Max: " + squares.reduce(Integer.MIN_VALUE, Math::max));
+
+        // Stages apply in order over an existing array
+        int[] values = {7, 3, 12, 9, 4};
+        System.out.print("Odd values plus one:");
+        IntPipeline.of(values)
+                .filter(n -> n % 2 != 0)
+                .map(n -> n + 1)
+                .forEach(n -> System.out.print(" " + n));
+        System.out.println();
+    }
+}
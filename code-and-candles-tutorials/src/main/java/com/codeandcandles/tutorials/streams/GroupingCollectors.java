@@ -0,0 +1,195 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.LongSummaryStatistics;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Grouping collectors that aggregate as they go instead of building a {@code List} per group, for
+ * large parallel streams.
+ *
+ * <p>
+ * {@code Collectors.groupingBy(classifier)}, as in {@link GroupByDemo}, gives every leaf of a
+ * parallel stream its own {@code HashMap} of growing {@code ArrayList}s, then merges the maps
+ * pairwise. On millions of rows the list growth and the merges dominate. These collectors differ
+ * in three ways:
+ * </p>
+ * <ul>
+ *     <li><strong>aggregates, not lists</strong> – each group keeps a running count or a
+ *         {@link LongSummaryStatistics} (count, sum, min, max), so memory depends on the number of
+ *         groups, not rows;</li>
+ *     <li><strong>striped accumulation</strong> – like {@code groupingByConcurrent}, the collector
+ *         is {@code CONCURRENT}, so a parallel stream shares one container. The container holds
+ *         one stripe per slot of thread ids. Each stripe is a plain {@code HashMap} behind its own
+ *         monitor, which in practice only one thread takes, so a hot key causes no contention.
+ *         The stripes are merged once, at the end;</li>
+ *     <li><strong>pre-sizing</strong> – stripe maps and the result are sized from
+ *         {@code expectedGroups}, so they do not rehash while the stream runs. Use
+ *         {@link #estimateGroups(List, Function)} when the cardinality is not known.</li>
+ * </ul>
+ *
+ * <p>
+ * The collectors are {@code UNORDERED}. The result map is a {@code HashMap}.
+ * </p>
+ */
+public final class GroupingCollectors {
+
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+    private static final int SAMPLE_SIZE = 4096;
+
+    private GroupingCollectors() {
+    }
+
+    /**
+     * Number of elements per group.
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>> counting(
+            Function<? super T, ? extends K> classifier, int expectedGroups) {
+        return striped(classifier, expectedGroups,
+                () -> new long[1],
+                (cell, element) -> cell[0]++,
+                (into, from) -> into[0] += from[0],
+                cell -> cell[0]);
+    }
+
+    /**
+     * Count, sum, min and max of {@code mapper} per group.
+     */
+    public static <T, K> Collector<T, ?, Map<K, LongSummaryStatistics>> summarizingLong(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper, int expectedGroups) {
+        Objects.requireNonNull(mapper);
+        return striped(classifier, expectedGroups,
+                LongSummaryStatistics::new,
+                (cell, element) -> cell.accept(mapper.applyAsLong(element)),
+                LongSummaryStatistics::combine,
+                Function.identity());
+    }
+
+    /**
+     * Estimates the number of distinct keys from {@value #SAMPLE_SIZE} randomly chosen elements
+     * (random rather than evenly spaced, so a periodic layout of keys cannot fool it). If the
+     * sample repeats keys a lot, the distinct count of the sample is taken as it is; if most
+     * sampled keys are distinct, it is scaled up to the size of the list.
+     */
+    public static <T> int estimateGroups(List<? extends T> data, Function<? super T, ?> classifier) {
+        int size = data.size();
+        if (size <= SAMPLE_SIZE) {
+            Set<Object> keys = new HashSet<>();
+            data.forEach(element -> keys.add(classifier.apply(element)));
+            return keys.size();
+        }
+        Set<Object> keys = new HashSet<>();
+        SplittableRandom random = new SplittableRandom(size);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            keys.add(classifier.apply(data.get(random.nextInt(size))));
+        }
+        int distinct = keys.size();
+        return distinct < SAMPLE_SIZE / 2 ? distinct : (int) Math.min(size, (long) distinct * size / SAMPLE_SIZE);
+    }
+
+    private static <T, K, A, R> Collector<T, ?, Map<K, R>> striped(
+            Function<? super T, ? extends K> classifier, int expectedGroups,
+            Supplier<A> newCell, BiConsumer<A, ? super T> accumulate, BiConsumer<A, A> merge, Function<A, R> finish) {
+        Objects.requireNonNull(classifier);
+        if (expectedGroups < 0) {
+            throw new IllegalArgumentException("expectedGroups must not be negative");
+        }
+        return Collector.of(
+                () -> new Stripes<K, A>(expectedGroups),
+                (stripes, element) -> stripes.accumulate(classifier.apply(element), element, newCell, accumulate),
+                (left, right) -> left.mergeFrom(right, merge),
+                stripes -> stripes.finish(merge, finish),
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * The shared container: one lazily created {@code HashMap} per stripe, picked by thread id.
+     */
+    private static final class Stripes<K, A> {
+
+        /** Padded so that the monitors of neighbouring stripes do not share a cache line. */
+        @SuppressWarnings("unused")
+        private static final class Stripe<K, A> {
+            HashMap<K, A> map;
+            long p1, p2, p3, p4, p5, p6, p7;
+        }
+
+        private final Stripe<K, A>[] stripes;
+        private final int expectedGroups;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Stripes(int expectedGroups) {
+            this.expectedGroups = expectedGroups;
+            this.stripes = new Stripe[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe<>();
+            }
+        }
+
+        <T> void accumulate(K key, T element, Supplier<A> newCell, BiConsumer<A, ? super T> accumulate) {
+            Stripe<K, A> stripe = stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+            synchronized (stripe) {
+                HashMap<K, A> map = stripe.map;
+                if (map == null) {
+                    map = stripe.map = HashMap.newHashMap(expectedGroups);
+                }
+                A cell = map.get(key);
+                if (cell == null) {
+                    cell = newCell.get();
+                    map.put(key, cell);
+                }
+                accumulate.accept(cell, element);
+            }
+        }
+
+        /** Combiner, only used if the stream does not take the concurrent path. */
+        Stripes<K, A> mergeFrom(Stripes<K, A> other, BiConsumer<A, A> merge) {
+            for (int i = 0; i < STRIPES; i++) {
+                HashMap<K, A> from = other.stripes[i].map;
+                if (from == null) {
+                    continue;
+                }
+                if (stripes[i].map == null) {
+                    stripes[i].map = from;
+                } else {
+                    mergeInto(stripes[i].map, from, merge);
+                }
+            }
+            return this;
+        }
+
+        <R> Map<K, R> finish(BiConsumer<A, A> merge, Function<A, R> finish) {
+            HashMap<K, A> all = HashMap.newHashMap(expectedGroups);
+            for (Stripe<K, A> stripe : stripes) {
+                synchronized (stripe) {
+                    if (stripe.map != null) {
+                        mergeInto(all, stripe.map, merge);
+                    }
+                }
+            }
+            HashMap<K, R> result = HashMap.newHashMap(all.size());
+            all.forEach((key, cell) -> result.put(key, finish.apply(cell)));
+            return result;
+        }
+
+        private static <K, A> void mergeInto(HashMap<K, A> into, HashMap<K, A> from, BiConsumer<A, A> merge) {
+            from.forEach((key, cell) -> {
+                A existing = into.putIfAbsent(key, cell);
+                if (existing != null) {
+                    merge.accept(existing, cell);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A small pipeline builder over {@code int}s whose stages run fused: every terminal operation is
+ * one loop over the source. Each element goes through all filters and maps and straight into the
+ * result, with no intermediate collection and no boxing.
+ *
+ * <p>
+ * {@link StreamsPipelineDemo} collects {@code squaredEvens} into a {@code List<Integer>} and then
+ * streams that list again to sum it: two passes, and an {@code Integer} per element. With
+ * {@link #tee(int, IntBinaryOperator)}, the same result, the collected values plus their sum,
+ * comes out of a single pass:
+ * </p>
+ *
+ * <pre>
+ * IntPipeline.Tee squaredEvens = IntPipeline.rangeClosed(1, 10)
+ *         .filter(n -&gt; n % 2 == 0)
+ *         .map(n -&gt; n * n)
+ *         .tee(0, Integer::sum);
+ * </pre>
+ *
+ * <p>
+ * Builders are immutable: {@code filter} and {@code map} return a new pipeline sharing the source.
+ * Each stage is a function from its downstream consumer to its own, and {@code filter} and
+ * {@code map} compose them as they are called. A terminal operation applies the composed function
+ * to its own consumer once, then pushes every source value into the resulting chain; the per-element
+ * loop has no dispatch on stage type. This is the sink chain {@link java.util.stream} builds too.
+ * </p>
+ */
+public final class IntPipeline {
+
+    /**
+     * The collected values of a pipeline and their reduction, produced in one pass.
+     */
+    public record Tee(int[] collected, int reduced) {
+
+        @Override
+        public String toString() {
+            return Arrays.toString(collected) + " reduced=" + reduced;
+        }
+    }
+
+    /**
+     * Wraps the consumer of the next stage into the consumer of this one.
+     */
+    private interface Stage {
+        IntConsumer wrap(IntConsumer downstream);
+    }
+
+    private static final Stage NO_STAGES = downstream -> downstream;
+
+    private final int[] source;
+    private final int from;
+    private final int to;                       // exclusive
+    private final boolean isRange;
+    private final Stage stages;                 // all stages, composed in order
+
+    private IntPipeline(int[] source, int from, int to, boolean isRange, Stage stages) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.isRange = isRange;
+        this.stages = stages;
+    }
+
+    /**
+     * A pipeline over {@code values}. The array is read, not copied.
+     */
+    public static IntPipeline of(int... values) {
+        return new IntPipeline(Objects.requireNonNull(values), 0, values.length, false, NO_STAGES);
+    }
+
+    /**
+     * The values {@code from} to {@code to}, both inclusive, generated as the loop runs.
+     */
+    public static IntPipeline rangeClosed(int from, int to) {
+        if (to == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("to must be below Integer.MAX_VALUE");
+        }
+        return new IntPipeline(null, from, Math.max(from, to + 1), true, NO_STAGES);
+    }
+
+    public IntPipeline filter(IntPredicate predicate) {
+        Objects.requireNonNull(predicate);
+        return with(downstream -> value -> {
+            if (predicate.test(value)) {
+                downstream.accept(value);
+            }
+        });
+    }
+
+    public IntPipeline map(IntUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+        return with(downstream -> value -> downstream.accept(mapper.applyAsInt(value)));
+    }
+
+    private IntPipeline with(Stage stage) {
+        Stage upstream = stages;
+        return new IntPipeline(source, from, to, isRange, downstream -> upstream.wrap(stage.wrap(downstream)));
+    }
+
+    // ---------------------------------------------------------------------
+    // Terminal operations: each is a single pass
+    // ---------------------------------------------------------------------
+
+    public int reduce(int identity, IntBinaryOperator op) {
+        Objects.requireNonNull(op);
+        Reducer reducer = new Reducer(identity, op);
+        forEach(reducer);
+        return reducer.result;
+    }
+
+    public int sum() {
+        return reduce(0, Integer::sum);
+    }
+
+    public long count() {
+        long[] count = {0};
+        forEach(value -> count[0]++);
+        return count[0];
+    }
+
+    public void forEach(IntConsumer action) {
+        IntConsumer sink = stages.wrap(Objects.requireNonNull(action));
+        if (isRange) {
+            for (int i = from; i < to; i++) {
+                sink.accept(i);
+            }
+        } else {
+            int[] values = source;
+            for (int i = from; i < to; i++) {
+                sink.accept(values[i]);
+            }
+        }
+    }
+
+    public int[] toArray() {
+        return tee(0, (a, b) -> a).collected();
+    }
+
+    /**
+     * Collects the values into an array and reduces them with {@code op}, in the same pass.
+     */
+    public Tee tee(int identity, IntBinaryOperator op) {
+        Objects.requireNonNull(op);
+        Collector collector = new Collector(Math.min(Math.max(16, (to - from) / 2), 1 << 20), identity, op);
+        forEach(collector);
+        return collector.toTee();
+    }
+
+    // ---------------------------------------------------------------------
+    // Terminal sinks
+    // ---------------------------------------------------------------------
+
+    private static final class Reducer implements IntConsumer {
+        private final IntBinaryOperator op;
+        int result;
+
+        Reducer(int identity, IntBinaryOperator op) {
+            this.op = op;
+            this.result = identity;
+        }
+
+        @Override
+        public void accept(int value) {
+            result = op.applyAsInt(result, value);
+        }
+    }
+
+    private static final class Collector implements IntConsumer {
+        private final IntBinaryOperator op;
+        private int[] buffer;
+        private int size;
+        private int result;
+
+        Collector(int initialCapacity, int identity, IntBinaryOperator op) {
+            this.buffer = new int[initialCapacity];
+            this.op = op;
+            this.result = identity;
+        }
+
+        @Override
+        public void accept(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = value;
+            result = op.applyAsInt(result, value);
+        }
+
+        Tee toTee() {
+            return new Tee(size == buffer.length ? buffer : Arrays.copyOf(buffer, size), result);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+/**
+ * A pull-based source of {@code long} values, read chunk by chunk into a buffer the caller owns.
+ *
+ * <p>
+ * Unlike a {@code List}, a source never holds more than the chunk being read, so it can stand for a
+ * multi-GB file or an endless generator. {@link #map} and {@link #filter} work on each chunk in
+ * place, which gives the {@code filter → map} stages of {@link StreamsPipelineDemo} without an
+ * intermediate list.
+ * </p>
+ */
+@FunctionalInterface
+public interface LongSource extends AutoCloseable {
+
+    /**
+     * Fills {@code buffer} from index 0.
+     *
+     * @return number of values read, {@code 0} if none are available right now, or {@code -1} at
+     *         the end of the source
+     */
+    int read(long[] buffer) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * The values {@code from} to {@code to}, both inclusive.
+     */
+    static LongSource rangeClosed(long from, long to) {
+        long[] next = {from};
+        boolean[] exhausted = {from > to};
+        return buffer -> {
+            if (exhausted[0]) {
+                return -1;
+            }
+            // values left minus one, unsigned: a range like [Long.MIN_VALUE, 0] holds more than
+            // Long.MAX_VALUE values. Ending on a flag rather than next > to also stops at
+            // to == Long.MAX_VALUE, where next would wrap around.
+            long lastOffset = to - next[0];
+            boolean last = Long.compareUnsigned(lastOffset, buffer.length) < 0;
+            int n = last ? (int) lastOffset + 1 : buffer.length;
+            long value = next[0];
+            for (int i = 0; i < n; i++) {
+                buffer[i] = value++;
+            }
+            if (last) {
+                exhausted[0] = true;
+            } else {
+                next[0] = value;
+            }
+            return n;
+        };
+    }
+
+    /**
+     * {@code count} values computed from their index, for example random or synthetic data.
+     */
+    static LongSource generate(long count, LongUnaryOperator indexToValue) {
+        return rangeClosed(0, count - 1).map(indexToValue);
+    }
+
+    /**
+     * One value per line of a text file, read through a buffered reader.
+     */
+    static LongSource lines(Path file, ToLongFunction<String> parser) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return new LongSource() {
+            @Override
+            public int read(long[] buffer) throws IOException {
+                int n = 0;
+                String line;
+                while (n < buffer.length && (line = reader.readLine()) != null) {
+                    buffer[n++] = parser.applyAsLong(line);
+                }
+                return n == 0 ? -1 : n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    default LongSource map(LongUnaryOperator mapper) {
+        LongSource upstream = this;
+        return new LongSource() {
+            @Override
+            public int read(long[] buffer) throws IOException {
+                int n = upstream.read(buffer);
+                for (int i = 0; i < n; i++) {
+                    buffer[i] = mapper.applyAsLong(buffer[i]);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                upstream.close();
+            }
+        };
+    }
+
+    /**
+     * Keeps matching values, compacting each chunk in place. A chunk may come back with fewer
+     * values than were read, or none.
+     */
+    default LongSource filter(LongPredicate predicate) {
+        LongSource upstream = this;
+        return new LongSource() {
+            @Override
+            public int read(long[] buffer) throws IOException {
+                int n = upstream.read(buffer);
+                int kept = 0;
+                for (int i = 0; i < n; i++) {
+                    long value = buffer[i];
+                    if (predicate.test(value)) {
+                        buffer[kept++] = value;
+                    }
+                }
+                return n < 0 ? n : kept;
+            }
+
+            @Override
+            public void close() throws IOException {
+                upstream.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,299 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the records of a file, such as lines of a log or a CSV, read through
+ * {@link MappedByteBuffer}s.
+ *
+ * <p>
+ * Each record is a {@link ByteBuffer} slice of the mapping, without its delimiter or a trailing
+ * {@code '\r'}. No bytes are copied and no {@code String} is built unless the pipeline asks for
+ * one with {@link #decode(ByteBuffer)}. Helpers such as {@link #field(ByteBuffer, int, byte)} and
+ * {@link #parseLong(ByteBuffer)} work on the slice directly.
+ * </p>
+ *
+ * <p>
+ * {@link #trySplit()} halves the remaining byte range and moves the cut forward to the next
+ * delimiter, so every record belongs to exactly one half. Files larger than 2 GB are mapped in
+ * windows of up to {@code maxMapBytes}, each ending on a record boundary. A single record may not
+ * be longer than one window.
+ * </p>
+ *
+ * <p>
+ * The spliterator is {@code ORDERED}, so {@code forEachOrdered} and {@code collect} see records
+ * in file order. It is not {@code SIZED}: {@link #estimateSize()} reports remaining bytes.
+ * </p>
+ */
+public final class MappedRecordSpliterator implements Spliterator<ByteBuffer> {
+
+    public static final int DEFAULT_MAX_MAP_BYTES = 1 << 30;
+
+    private static final long MIN_SPLIT_BYTES = 1 << 20;
+    private static final int PROBE_BYTES = 8 * 1024;
+
+    private final FileChannel channel;
+    private final byte delimiter;
+    private final int maxMapBytes;
+    private long position;          // file offset of the first byte not yet mapped
+    private final long end;         // exclusive; always a record boundary or the end of the file
+
+    private MappedByteBuffer window;
+    private int cursor;
+    private int limit;
+
+    public MappedRecordSpliterator(FileChannel channel, byte delimiter, int maxMapBytes) throws IOException {
+        this(channel, delimiter, maxMapBytes, 0, channel.size());
+    }
+
+    private MappedRecordSpliterator(FileChannel channel, byte delimiter, int maxMapBytes, long start, long end) {
+        if (maxMapBytes <= 0) {
+            throw new IllegalArgumentException("maxMapBytes must be positive");
+        }
+        this.channel = channel;
+        this.delimiter = delimiter;
+        this.maxMapBytes = maxMapBytes;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * A stream over the lines of {@code file}. Closing the stream closes the file; the slices
+     * already handed out stay readable.
+     */
+    public static Stream<ByteBuffer> lines(Path file, boolean parallel) throws IOException {
+        return records(file, (byte) '\n', parallel);
+    }
+
+    public static Stream<ByteBuffer> records(Path file, byte delimiter, boolean parallel) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(new MappedRecordSpliterator(channel, delimiter, DEFAULT_MAX_MAP_BYTES), parallel)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Spliterator
+    // ---------------------------------------------------------------------
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+        while (cursor >= limit) {
+            if (!mapNextWindow()) {
+                return false;
+            }
+        }
+        int start = cursor;
+        int i = start;
+        while (i < limit && window.get(i) != delimiter) {
+            i++;
+        }
+        cursor = Math.min(i + 1, limit);
+        if (i > start && window.get(i - 1) == '\r') {
+            i--;
+        }
+        action.accept(window.slice(start, i - start));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super ByteBuffer> action) {
+        while (tryAdvance(action)) {
+            // one record per call; the window is remapped as needed
+        }
+    }
+
+    /**
+     * Splits off the first half of the part not yet mapped. Returns {@code null} while a window is
+     * being read, since the prefix must come before it, or when less than 1 MB is left.
+     */
+    @Override
+    public Spliterator<ByteBuffer> trySplit() {
+        if (cursor < limit || end - position < MIN_SPLIT_BYTES) {
+            return null;
+        }
+        long boundary = nextRecordStart(position + (end - position) / 2);
+        if (boundary <= position || boundary >= end) {
+            return null;
+        }
+        MappedRecordSpliterator prefix = new MappedRecordSpliterator(channel, delimiter, maxMapBytes, position, boundary);
+        position = boundary;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position) + (limit - cursor);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    // ---------------------------------------------------------------------
+    // Record helpers
+    // ---------------------------------------------------------------------
+
+    /**
+     * The record as a UTF-8 {@code String}. This is the one place bytes are copied.
+     */
+    public static String decode(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(record.position(), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The {@code index}-th field of {@code record} (0-based), as a slice without the separator.
+     * Returns an empty buffer if the record has fewer fields.
+     */
+    public static ByteBuffer field(ByteBuffer record, int index, byte separator) {
+        int from = record.position();
+        int to = record.limit();
+        for (int i = from; i < to; i++) {
+            if (record.get(i) == separator) {
+                if (index == 0) {
+                    return record.slice(from, i - from);
+                }
+                index--;
+                from = i + 1;
+            }
+        }
+        return index == 0 ? record.slice(from, to - from) : record.slice(to, 0);
+    }
+
+    /**
+     * Parses a decimal {@code long} with an optional leading {@code '-'}.
+     *
+     * @throws NumberFormatException if the bytes are not a number or do not fit a {@code long}
+     */
+    public static long parseLong(ByteBuffer digits) {
+        int i = digits.position();
+        int to = digits.limit();
+        boolean negative = i < to && digits.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("Not a number: '" + decode(digits) + "'");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = digits.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: '" + decode(digits) + "'");
+            }
+            // accumulate negatively so Long.MIN_VALUE parses; check before the step can wrap
+            if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit) {
+                throw new NumberFormatException("Out of range: '" + decode(digits) + "'");
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Out of range: '" + decode(digits) + "'");
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Whether {@code record} holds exactly the ASCII characters of {@code text}.
+     */
+    public static boolean contentEquals(ByteBuffer record, String text) {
+        int length = record.remaining();
+        if (length != text.length()) {
+            return false;
+        }
+        int base = record.position();
+        for (int i = 0; i < length; i++) {
+            if (record.get(base + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    /**
+     * Maps the next window of at most {@code maxMapBytes}, cut back to its last delimiter unless
+     * it reaches {@code end}.
+     */
+    private boolean mapNextWindow() {
+        if (position >= end) {
+            return false;
+        }
+        try {
+            long size = Math.min(end - position, maxMapBytes);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            int usable = (int) size;
+            if (position + size < end) {
+                int last = usable - 1;
+                while (last >= 0 && mapped.get(last) != delimiter) {
+                    last--;
+                }
+                if (last < 0) {
+                    throw new IOException("Record at offset " + position + " is longer than " + maxMapBytes + " bytes");
+                }
+                usable = last + 1;
+            }
+            window = mapped;
+            cursor = 0;
+            limit = usable;
+            position += usable;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The offset just after the first delimiter at or after {@code offset - 1}, or {@code end}.
+     * Probes with small positional reads, which are safe to run from several threads.
+     */
+    private long nextRecordStart(long offset) {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        long at = offset - 1;
+        try {
+            while (at < end) {
+                probe.clear();
+                int n = channel.read(probe, at);
+                if (n <= 0) {
+                    return end;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == delimiter) {
+                        return at + i + 1;
+                    }
+                }
+                at += n;
+            }
+            return end;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link ParallelStreamDemo} query without boxing: square, keep multiples of 10, count.
+ * Runs it over an {@code int[]}, over an {@code int[]} split on cache lines, and over an off-heap
+ * {@link IntBuffer}, and prints the heap each source holds.
+ *
+ * <p>
+ * 10M boxed {@code Integer}s take about 200 MB (16-byte objects plus 4-byte references); the
+ * {@code int[]} takes 40 MB and the off-heap buffer takes no heap at all. All variants compute
+ * {@code n * n} in {@code int}, overflow included, so they report the same count as the boxed
+ * version. See {@code PrimitiveStreamsBenchmark} for throughput and allocation rate.
+ * </p>
+ */
+public class PrimitiveParallelStreamDemo {
+
+    public static void main(String[] args) {
+        int size = 10_000_000;
+
+        long before = usedHeap();
+        int[] array = IntStream.rangeClosed(1, size).toArray();
+        long arrayHeap = usedHeap() - before;
+
+        IntBuffer buffer = CacheLineSpliterators.allocateAligned(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, array[i]);
+        }
+
+        System.out.println("int[] heap (MB): " + arrayHeap / (1024 * 1024));
+        System.out.println("IntBuffer heap (MB): 0 (off-heap)");
+
+        run("int[] (Arrays.stream)", Arrays.stream(array).parallel());
+        run("int[] (cache-line splits)", CacheLineSpliterators.stream(array, true));
+        run("IntBuffer (off-heap)", CacheLineSpliterators.stream(buffer, true));
+    }
+
+    private static void run(String name, IntStream numbers) {
+        long startTime = System.currentTimeMillis();
+
+        long count = numbers
+                .map(n -> n * n)
+                .filter(square -> square % 10 == 0)
+                .count();
+
+        long endTime = System.currentTimeMillis();
+
+        System.out.println(name + " - count of squares divisible by 10: " + count
+                + ", time taken (ms): " + (endTime - startTime));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,121 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Constant-size running state for a stream of {@code long}s: count, sum, min, max and a
+ * {@link HyperLogLog} distinct count, plus an engine that feeds it from a {@link LongSource}.
+ *
+ * <p>
+ * {@link ReduceExample} and {@link StreamsPipelineDemo} reduce a fully built {@code List}, which
+ * caps the input at what fits in the heap. {@link #aggregate(LongSource, int, long, Consumer)}
+ * instead reuses one chunk buffer and folds each chunk into this object. Memory is the chunk plus
+ * about 4 KB, however long the source is. Aggregates of different chunks, files or threads
+ * combine with {@link #merge(RunningAggregate)}.
+ * </p>
+ *
+ * <p>
+ * The sum wraps on overflow, like {@code long} arithmetic in a stream reduction.
+ * </p>
+ */
+public final class RunningAggregate {
+
+    /**
+     * An immutable copy of the running state.
+     */
+    public record Summary(long count, long sum, long min, long max, long distinctEstimate) {
+
+        public double average() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return count == 0
+                    ? "count=0"
+                    : String.format("count=%d sum=%d min=%d max=%d avg=%.2f distinct~%d",
+                    count, sum, min, max, average(), distinctEstimate);
+        }
+    }
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private final HyperLogLog distinct = new HyperLogLog();
+
+    public void add(long value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        distinct.add(value);
+    }
+
+    /**
+     * Folds the first {@code length} values of {@code chunk} in one tight loop.
+     */
+    public void addAll(long[] chunk, int length) {
+        long s = sum;
+        long lo = min;
+        long hi = max;
+        for (int i = 0; i < length; i++) {
+            long value = chunk[i];
+            s += value;
+            lo = Math.min(lo, value);
+            hi = Math.max(hi, value);
+            distinct.add(value);
+        }
+        sum = s;
+        min = lo;
+        max = hi;
+        count += length;
+    }
+
+    public void merge(RunningAggregate other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        distinct.merge(other.distinct);
+    }
+
+    public Summary summary() {
+        return new Summary(count, sum, min, max, distinct.estimate());
+    }
+
+    /**
+     * Reads {@code source} to the end in chunks of {@code chunkSize} values and closes it.
+     *
+     * @param chunkSize     values read per call to {@link LongSource#read(long[])}; must be positive
+     * @param partialEvery  values between two calls to {@code onPartial}; {@code 0} for none
+     * @param onPartial     receives a summary of everything read so far
+     * @return the summary of the whole source
+     */
+    public static Summary aggregate(LongSource source, int chunkSize, long partialEvery,
+                                    Consumer<Summary> onPartial) throws IOException {
+        if (chunkSize <= 0) {
+            // an empty chunk would read 0 values forever
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        RunningAggregate aggregate = new RunningAggregate();
+        long[] chunk = new long[chunkSize];
+        long nextPartial = partialEvery > 0 ? partialEvery : Long.MAX_VALUE;
+        try (source) {
+            int n;
+            while ((n = source.read(chunk)) >= 0) {
+                aggregate.addAll(chunk, n);
+                if (aggregate.count >= nextPartial) {
+                    onPartial.accept(aggregate.summary());
+                    nextPartial = aggregate.count + partialEvery;
+                }
+            }
+        }
+        return aggregate.summary();
+    }
+
+    public static Summary aggregate(LongSource source) throws IOException {
+        return aggregate(source, 1024, 0, summary -> { });
+    }
+}
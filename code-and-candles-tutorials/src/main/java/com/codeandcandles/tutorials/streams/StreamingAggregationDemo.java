@@ -0,0 +1,56 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Demonstrates {@link RunningAggregate} over pull-based {@link LongSource}s.
+ * First reproduces {@link ReduceExample} and {@link StreamsPipelineDemo} without building a list,
+ * then aggregates 200M generated values and a text file, printing partial results and the used
+ * heap, which stays flat while the input grows.
+ */
+public class StreamingAggregationDemo {
+
+    public static void main(String[] args) throws IOException {
+        // Same answers as the list-based examples
+        List<String> words = Arrays.asList("hello", "world", "java", "streams");
+        RunningAggregate.Summary lengths = RunningAggregate.aggregate(
+                LongSource.generate(words.size(), i -> words.get((int) i).length()));
+        System.out.println("Total character count: " + lengths.sum());
+
+        RunningAggregate.Summary squaredEvens = RunningAggregate.aggregate(
+                LongSource.rangeClosed(1, 10)
+                        .filter(n -> n % 2 == 0)
+                        .map(n -> n * n));
+        System.out.println("Sum of Squared Evens: " + squaredEvens.sum());
+
+        // 200M values in [0, 1M), never materialized
+        long count = 200_000_000L;
+        RunningAggregate.Summary generated = RunningAggregate.aggregate(
+                LongSource.generate(count, i -> Math.floorMod(i * 0x9E3779B97F4A7C15L, 1_000_000L)),
+                8192, 50_000_000L,
+                partial -> System.out.println("partial: " + partial + " heapMB=" + usedHeapMb()));
+        System.out.println("final:   " + generated);
+
+        // A file, read line by line
+        Path file = Files.createTempFile("values", ".txt");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 1; i <= 100_000; i++) {
+                out.write(Integer.toString(i % 1000));
+                out.newLine();
+            }
+        }
+        System.out.println("file:    " + RunningAggregate.aggregate(LongSource.lines(file, Long::parseLong)));
+        Files.delete(file);
+    }
+
+    private static long usedHeapMb() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    }
+}
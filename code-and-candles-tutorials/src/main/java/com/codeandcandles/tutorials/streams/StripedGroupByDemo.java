@@ -0,0 +1,39 @@
+package com.codeandcandles.tutorials.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Demonstrates grouping 1M employees by department in parallel with {@link GroupingCollectors}.
+ * Instead of a Map<String, List<Employee>> as in {@link GroupByDemo}, each department keeps only
+ * a head count and the count/sum/min/max of name lengths.
+ */
+public class StripedGroupByDemo {
+
+    private static final String[] DEPARTMENTS = {"HR", "Engineering", "Sales", "Finance", "Legal", "Support"};
+
+    public static void main(String[] args) {
+        List<GroupByDemo.Employee> employees = new ArrayList<>(1_000_000);
+        for (int i = 0; i < 1_000_000; i++) {
+            employees.add(new GroupByDemo.Employee("emp" + i, DEPARTMENTS[i % DEPARTMENTS.length]));
+        }
+
+        int expectedGroups = GroupingCollectors.estimateGroups(employees, emp -> emp.department);
+        System.out.println("Estimated departments: " + expectedGroups);
+
+        Map<String, Long> headCount = employees.parallelStream()
+                .collect(GroupingCollectors.counting(emp -> emp.department, expectedGroups));
+
+        Map<String, LongSummaryStatistics> nameLengths = employees.parallelStream()
+                .collect(GroupingCollectors.summarizingLong(emp -> emp.department, emp -> emp.name.length(), expectedGroups));
+
+        new TreeMap<>(headCount).forEach((dept, count) -> {
+            LongSummaryStatistics stats = nameLengths.get(dept);
+            System.out.println(dept + ": " + count + " employees, name length min=" + stats.getMin()
+                    + " max=" + stats.getMax() + " avg=" + String.format("%.2f", stats.getAverage()));
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentedThreadPoolExecutorTest {
+
+    /**
+     * {@code execute} racing {@code shutdown}: the task is queued, the pool shuts down, and the
+     * recheck in {@code execute} calls {@code remove} and then the rejection handler on the same
+     * task. Only one of them may lower the waiting count, or it ends up below zero. The queue shuts
+     * the pool down inside {@code offer} so the interleaving happens every time.
+     */
+    @Test
+    void waitingCountStaysAtZeroWhenExecuteRacesShutdown() throws InterruptedException {
+        InstrumentedThreadPoolExecutor[] pool = new InstrumentedThreadPoolExecutor[1];
+        LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>() {
+            @Override
+            public boolean offer(Runnable r) {
+                boolean offered = super.offer(r);
+                pool[0].shutdown();
+                return offered;
+            }
+        };
+        pool[0] = new InstrumentedThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, queue);
+
+        CountDownLatch release = new CountDownLatch(1);
+        pool[0].execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThrows(RejectedExecutionException.class, () -> pool[0].execute(() -> { }));
+        release.countDown();
+        assertTrue(pool[0].awaitTermination(5, TimeUnit.SECONDS));
+
+        pool[0].resetMetrics();
+        InstrumentedThreadPoolExecutor.Snapshot snapshot = pool[0].snapshot();
+        assertEquals(0, snapshot.peakQueueDepth());
+        assertEquals(0, snapshot.rejected());
+    }
+}
@@ -0,0 +1,77 @@
+package com.codeandcandles.tutorials.executorservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpmcBlockingQueueTest {
+
+    @Test
+    void removedElementLeavesSizeAtOnceButKeepsItsSlot() {
+        MpmcBlockingQueue<String> queue = new MpmcBlockingQueue<>(4);
+        queue.offer("a");
+        queue.offer("b");
+
+        assertTrue(queue.remove("a"));
+        assertEquals(1, queue.size());
+        assertEquals(2, queue.remainingCapacity());
+
+        assertTrue(queue.remove("b"));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+
+        assertNull(queue.poll());
+        assertEquals(4, queue.remainingCapacity());
+    }
+
+    /**
+     * {@code execute} racing {@code shutdown}: the task is queued, the pool shuts down, and the
+     * recheck in {@code execute} removes the task and calls {@code tryTerminate()}. The busy worker
+     * then asks for more work. If the removed task still counted, it would block in {@code take()}
+     * on the tombstone and {@code awaitTermination} would hang. The queue pauses inside
+     * {@code offer} so the interleaving happens every time.
+     */
+    @Test
+    void poolTerminatesWhenExecuteRacesShutdown() throws InterruptedException {
+        CountDownLatch offered = new CountDownLatch(1);
+        CountDownLatch shutDown = new CountDownLatch(1);
+        MpmcBlockingQueue<Runnable> queue = new MpmcBlockingQueue<>(16) {
+            @Override
+            public boolean offer(Runnable task) {
+                boolean added = super.offer(task);
+                offered.countDown();
+                awaitQuietly(shutDown);
+                return added;
+            }
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                queue, new ThreadPoolExecutor.DiscardPolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(() -> awaitQuietly(release));          // keeps the only worker busy
+
+        Thread submitter = new Thread(() -> pool.execute(() -> { }));
+        submitter.start();
+        offered.await();
+        pool.shutdown();
+        shutDown.countDown();
+        submitter.join();
+        release.countDown();
+
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS), "pool did not terminate");
+        pool.shutdownNow();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}